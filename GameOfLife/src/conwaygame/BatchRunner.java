@@ -0,0 +1,124 @@
+package conwaygame;
+/*
+ * Runs a simulation from the command line without opening a window, for scripted runs on
+ * machines without a display and for measuring how fast the engine steps.
+ *
+ *   java conwaygame.BatchRunner <input> <generations> [engine] [output]
+ *
+ * input is a grid file in any format GridReader reads, engine picks how generations are
+ * computed (see ENGINES, default "grid") and output, if given, is written with GridWriter so
+ * its extension picks the format. The stream engine only reads and writes text grids and
+ * needs an output file. Nothing here touches StdDraw, so no display is needed.
+ * Timing and throughput of each phase are printed to standard output.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+public class BatchRunner {
+
+    // grid: the whole board in memory, stepped by GameOfLife
+    // stream: text grids stepped a few rows at a time by RowStreamer, for boards bigger than memory
+    public static final String[] ENGINES = {"grid", "stream"};
+
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 4) {
+            usage("expected 2 to 4 arguments");
+        }
+        String input = args[0];
+        long generations = 0;
+        try {
+            generations = Long.parseLong(args[1]);
+        } catch (NumberFormatException e) {
+            usage("generations must be a whole number, got " + args[1]);
+        }
+        if (generations < 0) {
+            usage("generations must not be negative, got " + generations);
+        }
+        String engine = args.length > 2 ? args[2] : ENGINES[0];
+        String output = args.length > 3 ? args[3] : null;
+
+        try {
+            switch (engine) {
+                case "grid":
+                    runGrid(input, generations, output);
+                    break;
+                case "stream":
+                    if (output == null) {
+                        usage("the stream engine needs an output file");
+                    }
+                    runStream(input, generations, output);
+                    break;
+                default:
+                    usage("unknown engine " + engine);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("BatchRunner: " + e.getMessage());
+            System.exit(1);
+        } catch (NoSuchElementException e) {  // InputMismatchException too
+            System.err.println("BatchRunner: " + input + " is not a valid grid: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Loads input, steps it in memory and writes the last generation to output
+    private static void runGrid(String input, long generations, String output) throws IOException {
+        long start = System.nanoTime();
+        GameOfLife game = new GameOfLife();
+        GridReader.read(input, game);
+        long loaded = System.nanoTime();
+        boolean[][] grid = game.getGrid();
+        long cells = (long)grid.length * grid[0].length;
+        System.out.printf("loaded   %s: %dx%d, generation %d, in %.1f ms%n",
+                input, grid.length, grid[0].length, game.getGeneration(), millis(start, loaded));
+
+        for (long g = generations; g > 0; g -= Integer.MAX_VALUE) {
+            game.nextGeneration((int)Math.min(g, Integer.MAX_VALUE));
+        }
+        long stepped = System.nanoTime();
+        report(generations, cells, game.getTotalAliveCells(), millis(loaded, stepped));
+
+        if (output != null) {
+            GridWriter.write(output, game);
+            System.out.printf("wrote    %s in %.1f ms%n", output, millis(stepped, System.nanoTime()));
+        }
+    }
+
+    // Steps input from file to file and leaves the last generation in output
+    private static void runStream(String input, long generations, String output) throws IOException {
+        long cells;
+        try (ChannelInput in = ChannelInput.open(input)) {
+            int rows = in.readInt();
+            int cols = in.readInt();
+            cells = (long)rows * cols;
+            System.out.printf("streaming %s: %dx%d to %s%n", input, rows, cols, output);
+        }
+        long start = System.nanoTime();
+        long population = RowStreamer.step(input, output, generations);
+        report(generations, cells, population, millis(start, System.nanoTime()));
+    }
+
+    // Prints how long stepping took and how many generations and cells per second that is
+    private static void report(long generations, long cells, long population, double ms) {
+        double seconds = ms / 1000;
+        if (generations == 0) {
+            System.out.printf("stepped  0 generations%n");
+        } else {
+            System.out.printf("stepped  %d generations in %.1f ms: %.1f generations/s, %.3g cells/s%n",
+                    generations, ms, generations / seconds, generations * cells / seconds);
+        }
+        System.out.printf("final    population %d%n", population);
+    }
+
+    private static double millis(long from, long to) {
+        return (to - from) / 1e6;
+    }
+
+    private static void usage(String problem) {
+        System.err.println("BatchRunner: " + problem);
+        System.err.println("usage: java conwaygame.BatchRunner <input> <generations> [engine] [output]");
+        System.err.println("engines: " + String.join(", ", ENGINES));
+        System.exit(2);
+    }
+}
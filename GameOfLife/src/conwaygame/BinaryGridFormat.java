@@ -0,0 +1,261 @@
+package conwaygame;
+/*
+ * Versioned binary grid format, about 1 bit per cell instead of the 7 bytes per cell of text.
+ *
+ * Layout (all numbers little-endian):
+ *   0  magic       "GOLB"
+ *   4  version     int
+ *   8  rows        int
+ *  12  cols        int
+ *  16  population  long
+ *  24  generation  long
+ *  32  rule        int, bit n set if a dead cell with n neighbors is born (low 16 bits),
+ *                  bit 16 + n set if an alive cell with n neighbors survives
+ *  36  reserved    int
+ *  40  checksum    long, CRC32 of the payload
+ *  48  payload     rows * PackedGrid.wordsPerRow(cols) longs, the words of a PackedGrid
+ *
+ * The payload is exactly the word array of a PackedGrid, so it is read with one bulk
+ * transfer (a memory map for files) and used as is.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.InputMismatchException;
+import java.util.zip.CRC32;
+
+public class BinaryGridFormat {
+
+    public static final String MAGIC = "GOLB";
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 48;
+
+    /**
+     * Header fields of a binary grid
+     */
+    public static class Header {
+        public int version = VERSION;
+        public int rows;
+        public int cols;
+        public long population;
+        public long generation;
+        public int rule = GameOfLife.CONWAY_RULE;
+        public long checksum;
+
+        public long payloadBytes() {
+            return 8L * rows * PackedGrid.wordsPerRow(cols);
+        }
+    }
+
+    /**
+     * Reads a binary grid file into game, replacing its grid and generation
+     * @param channel channel of the file, the grid is read starting at position 0
+     * @param game the game whose grid is replaced
+     * @throws InputMismatchException if the header, checksum or population is invalid
+     */
+    public static void read(FileChannel channel, GameOfLife game) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        read(mapped, game);
+    }
+
+    /**
+     * Reads a binary grid held in memory into game, replacing its grid and generation
+     * @param buf buffer positioned at the magic bytes, such as part of a mapped file
+     * @param game the game whose grid is replaced
+     */
+    public static void read(ByteBuffer buf, GameOfLife game) {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        Header header = readHeader(buf);
+        if (buf.remaining() < header.payloadBytes()) {
+            throw new InputMismatchException("binary grid is truncated, payload needs " + header.payloadBytes() + " bytes");
+        }
+
+        ByteBuffer payload = buf.slice().order(ByteOrder.LITTLE_ENDIAN);
+        payload.limit((int)header.payloadBytes());
+        load(header, payload, game);
+    }
+
+    /**
+     * Reads a binary grid from in into game, replacing its grid and generation
+     * @param in input positioned at the magic bytes
+     * @param game the game whose grid is replaced
+     */
+    public static void read(ChannelInput in, GameOfLife game) throws IOException {
+        byte[] headerBytes = new byte[HEADER_BYTES];
+        in.readFully(headerBytes, 0, HEADER_BYTES);
+        Header header = readHeader(ByteBuffer.wrap(headerBytes).order(ByteOrder.LITTLE_ENDIAN));
+
+        byte[] payloadBytes = new byte[(int)header.payloadBytes()];
+        in.readFully(payloadBytes, 0, payloadBytes.length);
+        load(header, ByteBuffer.wrap(payloadBytes).order(ByteOrder.LITTLE_ENDIAN), game);
+    }
+
+    /**
+     * Reads and validates a header, leaving buf positioned at the payload
+     * @param buf little-endian buffer positioned at the magic bytes
+     * @return the header
+     */
+    public static Header readHeader(ByteBuffer buf) {
+        if (buf.remaining() < HEADER_BYTES) {
+            throw new InputMismatchException("binary grid header is truncated");
+        }
+        for (int i = 0; i < MAGIC.length(); i++) {
+            if (buf.get() != (byte)MAGIC.charAt(i)) {
+                throw new InputMismatchException("not a binary grid");
+            }
+        }
+
+        Header header = new Header();
+        header.version = buf.getInt();
+        header.rows = buf.getInt();
+        header.cols = buf.getInt();
+        header.population = buf.getLong();
+        header.generation = buf.getLong();
+        header.rule = buf.getInt();
+        buf.getInt();  // reserved
+        header.checksum = buf.getLong();
+
+        if (header.version != VERSION) {
+            throw new InputMismatchException("unsupported binary grid version " + header.version);
+        }
+        if (header.rows <= 0 || header.cols <= 0 || header.payloadBytes() > Integer.MAX_VALUE) {
+            throw new InputMismatchException("invalid binary grid size " + header.rows + "x" + header.cols);
+        }
+        if (header.rule != GameOfLife.CONWAY_RULE) {
+            throw new InputMismatchException("binary grid uses rule " + ruleString(header.rule) + ", only " + ruleString(GameOfLife.CONWAY_RULE) + " is supported");
+        }
+        return header;
+    }
+
+    /**
+     * Writes grid to file in the binary format
+     * @param file name of the file, replaced if it exists
+     * @param grid the grid to write
+     * @param generation generation number stored in the header
+     */
+    public static void write(String file, boolean[][] grid, long generation) throws IOException {
+        write(file, PackedGrid.pack(grid), generation);
+    }
+
+    /**
+     * Writes a packed grid to file in the binary format
+     * @param file name of the file, replaced if it exists
+     * @param grid the grid to write
+     * @param generation generation number stored in the header
+     */
+    public static void write(String file, PackedGrid grid, long generation) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, grid, generation);
+        }
+    }
+
+    /**
+     * Writes a packed grid to channel in the binary format
+     * @param channel where the header and payload are written
+     * @param grid the grid to write
+     * @param generation generation number stored in the header
+     */
+    public static void write(WritableByteChannel channel, PackedGrid grid, long generation) throws IOException {
+        ByteBuffer payload = payload(grid);
+        ByteBuffer header = header(grid, generation, checksum(payload));
+        while (header.hasRemaining() || payload.hasRemaining()) {
+            if (header.hasRemaining()) {
+                channel.write(header);
+            } else {
+                channel.write(payload);
+            }
+        }
+    }
+
+    /**
+     * Encodes the words of grid as a little-endian payload
+     * @param grid the grid to encode
+     * @return ByteBuffer positioned at 0 holding the payload
+     */
+    public static ByteBuffer payload(PackedGrid grid) {
+        int words = grid.rows * grid.wordsPerRow;
+        ByteBuffer payload = ByteBuffer.allocate(8 * words).order(ByteOrder.LITTLE_ENDIAN);
+        payload.asLongBuffer().put(grid.words, 0, words);
+        return payload;
+    }
+
+    /**
+     * Encodes the header for grid
+     * @param grid the grid the header describes
+     * @param generation generation number stored in the header
+     * @param checksum CRC32 of the payload
+     * @return ByteBuffer positioned at 0 holding the header
+     */
+    public static ByteBuffer header(PackedGrid grid, long generation, long checksum) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < MAGIC.length(); i++) {
+            header.put((byte)MAGIC.charAt(i));
+        }
+        header.putInt(VERSION);
+        header.putInt(grid.rows);
+        header.putInt(grid.cols);
+        header.putLong(grid.population());
+        header.putLong(generation);
+        header.putInt(GameOfLife.CONWAY_RULE);
+        header.putInt(0);
+        header.putLong(checksum);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Returns the CRC32 of the remaining bytes of payload without moving its position
+     * @param payload the bytes to checksum
+     * @return long for the checksum
+     */
+    public static long checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return crc.getValue();
+    }
+
+    /**
+     * Formats a rule in B/S notation, e.g. B3/S23
+     * @param rule rule bits as stored in the header
+     * @return String for the rule
+     */
+    public static String ruleString(int rule) {
+        StringBuilder sb = new StringBuilder("B");
+        for (int n = 0; n <= 8; n++) {
+            if ((rule & (1 << n)) != 0) {
+                sb.append(n);
+            }
+        }
+        sb.append("/S");
+        for (int n = 0; n <= 8; n++) {
+            if ((rule & (1 << (16 + n))) != 0) {
+                sb.append(n);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Checks the payload and hands it to the game
+    private static void load(Header header, ByteBuffer payload, GameOfLife game) {
+        if (checksum(payload) != header.checksum) {
+            throw new InputMismatchException("binary grid checksum does not match its contents");
+        }
+        PackedGrid packed = new PackedGrid(header.rows, header.cols);
+        payload.asLongBuffer().get(packed.words);
+
+        boolean[][] grid = new boolean[header.rows][header.cols];
+        int population = packed.unpackInto(grid);
+        if (population != header.population) {
+            throw new InputMismatchException("binary grid header says " + header.population + " alive cells, the grid has " + population);
+        }
+        game.setGrid(grid, population);
+        game.setGeneration(header.generation);
+    }
+}
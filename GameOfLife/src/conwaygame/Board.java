@@ -1,15 +1,30 @@
 package conwaygame;
 /*
  * Class holding various methods of the grid for when the board is being interacted within the driver.
+ *
+ * The board area shows a view of viewRows x viewCols cells starting at (viewRow, viewCol),
+ * the whole board unless zoom() or pan() changed it. While a cell is at least a pixel big,
+ * cells are drawn one raster pixel each. Zoomed out further, each pixel is shaded by the
+ * share of alive cells in the block of cells under it. The blocks are counted from a summed-area
+ * table of the board, four lookups each, so a frame costs the same however many cells each
+ * pixel covers. The table is counted again only when the cells change.
+ *
+ * The border and gridlines are drawn once into a cached layer and put over the cells as one
+ * image. The layer is drawn again only when the board's place, the zoom, the board size or
+ * the line color change; panning moves the cells under the lines but not the lines.
  */
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 public class Board extends Rectangle {
     public int rows;
     public int cols;
     public boolean[][] board;
 
+    // Size and position on screen of one cell of the view
     public double incX;
     public double incY;
     public double lowerX;
@@ -17,29 +32,157 @@ public class Board extends Rectangle {
     public double lowerY;
     public double upperY;
 
+    // The part of the board shown, in cells
+    public int viewRow;
+    public int viewCol;
+    public int viewRows;
+    public int viewCols;
+    private int viewOfRows = -1;  // Board size the view was set for, a new size resets it
+    private int viewOfCols = -1;
+
+    // Community label of each cell (row * cols + col) from GameOfLife.communityLabels(),
+    // alive cells are colored by community while this is not null
+    public int[] labels;
+
+    // Color of dead cells, should match the page background
+    public Color background;
+
+    // Gridlines are left out when cells are smaller than this many pixels
+    public static final int MIN_GRIDLINE_PIXELS = 6;
+
+    // Community colors as RGB ints, spread around the hue wheel by the golden ratio so neighboring labels differ
+    private static final int[] COMMUNITY_COLORS = new int[64];
+    static {
+        for (int i = 0; i < COMMUNITY_COLORS.length; i++) {
+            COMMUNITY_COLORS[i] = Color.HSBtoRGB((i * 0.618034f) % 1f, 0.6f, 0.95f);
+        }
+    }
+
+    // One pixel per cell of the view, filled in by drawGrid() and drawn stretched over the board.
+    // Also remembers what is on screen, so drawChanges() can tell which cells changed.
+    private BufferedImage cellImage;
+    private int[] pixels;
+    private boolean stale = true;  // Something other than the cells was drawn over the board
+
+    // Border and gridlines, and what they were drawn for
+    private StdDraw.Layer gridLayer;
+    private int layerX, layerY, layerHalfWidth, layerHalfHeight;
+    private int layerViewRows, layerViewCols, layerColor;
+    private int layerWidthPixels, layerHeightPixels;
+    private double layerPenRadius;
+
+    // drawChanges() redraws squares of TILE x TILE cells that have a changed cell in them
+    public static final int TILE = 16;
+    private boolean[] dirtyTiles;
+
+    // Zoomed out, one pixel per canvas pixel, shaded from the summed-area table
+    private BufferedImage densityImage;
+    private int[] densityPixels;
+    private int[] shades = new int[256];  // Background to alive color by share of alive cells
+    private int shadesDead = 0;           // Colors the shades were made for, 0 (no alpha bits,
+    private int shadesAlive = 0;          // so no real color) until they are first made
+
+    private int[] densityCols = new int[0];  // First column under each pixel, and one past the last
+
+    // sums[r * (cols + 1) + c] counts the alive cells of rows 0 to r-1 and columns 0 to c-1
+    private int[] sums = new int[0];
+    private boolean[][] sumsOf;       // The grid the table was counted from
+    private boolean sumsStale = true;  // Cells were changed in place since the table was counted
+
     public Board(int x, int y, int halfWidth, int halfHeight, int rows, int cols, boolean filled, boolean[][] board) {
+        this(x, y, halfWidth, halfHeight, rows, cols, filled, board, StdDraw.BLACK);
+    }
+
+    public Board(int x, int y, int halfWidth, int halfHeight, int rows, int cols, boolean filled, boolean[][] board, Color background) {
         super(x, y, halfWidth, halfHeight, filled);
         this.rows = rows;
         this.cols = cols;
         this.board = board;
+        this.background = background;
         calculateBounds();
     }
 
     public void calculateBounds() {
-        incX = (double)2 * halfWidth / cols;
-        incY = (double)2 * halfHeight / rows;
+        if (viewOfRows != rows || viewOfCols != cols) {
+            resetView();
+        }
+        incX = (double)2 * halfWidth / viewCols;
+        incY = (double)2 * halfHeight / viewRows;
         lowerX = x - halfWidth + incX / 2;
         upperX = x + halfWidth - incX / 2;
         lowerY = y - halfHeight + incY / 2;
         upperY = y + halfHeight - incY / 2;
     }
 
+    /**
+     * Shows the whole board again
+     */
+    public void resetView() {
+        viewRow = 0;
+        viewCol = 0;
+        viewRows = rows;
+        viewCols = cols;
+        viewOfRows = rows;
+        viewOfCols = cols;
+        stale = true;
+    }
+
+    /**
+     * Zooms the view in (factor > 1) or out (factor < 1), keeping the given cell where it is on screen
+     * @param factor how many times bigger cells get
+     * @param row row of the cell that stays in place
+     * @param col column of the cell that stays in place
+     */
+    public void zoom(double factor, int row, int col) {
+        calculateBounds();
+        int newRows = (int)Math.max(1, Math.min(rows, Math.round(viewRows / factor)));
+        int newCols = (int)Math.max(1, Math.min(cols, Math.round(viewCols / factor)));
+        viewRow = (int)(row - (long)(row - viewRow) * newRows / viewRows);
+        viewCol = (int)(col - (long)(col - viewCol) * newCols / viewCols);
+        viewRows = newRows;
+        viewCols = newCols;
+        pan(0, 0);
+    }
+
+    /**
+     * Moves the view, stopping at the edges of the board
+     * @param rowsDown number of rows to move down, negative moves up
+     * @param colsRight number of columns to move right, negative moves left
+     */
+    public void pan(int rowsDown, int colsRight) {
+        calculateBounds();
+        viewRow = Math.max(0, Math.min(rows - viewRows, viewRow + rowsDown));
+        viewCol = Math.max(0, Math.min(cols - viewCols, viewCol + colsRight));
+        stale = true;
+        calculateBounds();
+    }
+
+    /**
+     * Returns the row of the board under a point of the board area
+     * @param pY y coordinate of the point
+     * @return int for the row, counting from the top of the board
+     */
+    public int rowAt(double pY) {
+        int row = (int)Math.floor((y + halfHeight - pY) / incY);
+        return viewRow + Math.max(0, Math.min(viewRows - 1, row));
+    }
+
+    /**
+     * Returns the column of the board under a point of the board area
+     * @param pX x coordinate of the point
+     * @return int for the column, counting from the left of the board
+     */
+    public int colAt(double pX) {
+        int col = (int)Math.floor((pX - (x - halfWidth)) / incX);
+        return viewCol + Math.max(0, Math.min(viewCols - 1, col));
+    }
+
     public double[] getCellCM(double pX, double pY) {
         double curCol = lowerX - incX/2;
         while (curCol < pX) {
             curCol += incX;
         }
-        
+
         double curRow = upperY + incY/2;
         while (curRow > pY) {
             curRow -= incY;
@@ -53,27 +196,207 @@ public class Board extends Rectangle {
         StdDraw.setPenColor(c);
         StdDraw.filledRectangle(pX, pY, incX/2, incY/2);
         StdDraw.setPenColor(prev);
-        drawAxes();
+        if (gridLayer != null) {
+            StdDraw.drawLayer(gridLayer, pX, pY, incX/2, incY/2);  // Just the lines around this cell
+        }
+        stale = true;
     }
 
     public void drawGrid() {
-        Color c = StdDraw.getPenColor();
-        StdDraw.setPenColor(StdDraw.GRAY);
+        if (isAggregated()) {
+            drawDensity();
+            stale = false;
+            return;
+        }
+        if (cellImage == null || cellImage.getWidth() != viewCols || cellImage.getHeight() != viewRows) {
+            cellImage = new BufferedImage(viewCols, viewRows, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt)cellImage.getRaster().getDataBuffer()).getData();
+        }
+        paintCells(null);
+        StdDraw.picture(x, y, cellImage, 2 * halfWidth, 2 * halfHeight);
+        stale = false;
+    }
 
-        for (double cellCol = lowerX; cellCol <= upperX + incX/2; cellCol += incX) {  // + incX/2 bc floating point imprecision
-            for (double cellRow = upperY; cellRow >= lowerY - incY/2; cellRow -= incY) {
-                int col = (int)Math.round((cellCol - lowerX) / incX);
-                int row = (int)Math.round((upperY - cellRow) / incY);  // Not upperY - cellRow bc lower row indices have higher y values
+    /**
+     * Redraws only the tiles of cells that changed since the board was last drawn and shows
+     * just those parts of the screen. Falls back to draw() and show() when the board was
+     * drawn over, changed size or view, is zoomed out past a pixel per cell, or when most
+     * tiles changed.
+     */
+    public void drawChanges() {
+        if (stale || isAggregated() || cellImage == null || cellImage.getWidth() != viewCols || cellImage.getHeight() != viewRows) {
+            changeColor(color != null ? color : StdDraw.getPenColor());
+            StdDraw.show();
+            return;
+        }
 
-                if (board[row][col]) {
-                    StdDraw.filledRectangle(cellCol, cellRow, incX/2, incY/2);
+        int tileRows = (viewRows + TILE - 1) / TILE;
+        int tileCols = (viewCols + TILE - 1) / TILE;
+        if (dirtyTiles == null || dirtyTiles.length != tileRows * tileCols) {
+            dirtyTiles = new boolean[tileRows * tileCols];
+        }
+        int dirty = paintCells(dirtyTiles);
+        if (dirty == 0) {
+            return;
+        }
+        sumsStale = true;
+        if (2 * dirty > dirtyTiles.length) {
+            Arrays.fill(dirtyTiles, false);
+            StdDraw.picture(x, y, cellImage, 2 * halfWidth, 2 * halfHeight);
+            drawGridLayer();
+            StdDraw.show();
+            return;
+        }
+
+        for (int t = 0; t < dirtyTiles.length; t++) {
+            if (!dirtyTiles[t]) {
+                continue;
+            }
+            dirtyTiles[t] = false;
+            int r0 = (t / tileCols) * TILE;
+            int c0 = (t % tileCols) * TILE;
+            int r1 = Math.min(viewRows, r0 + TILE);
+            int c1 = Math.min(viewCols, c0 + TILE);
+
+            double left = x - halfWidth + c0 * incX;
+            double top = y + halfHeight - r0 * incY;
+            double halfW = (c1 - c0) * incX / 2;
+            double halfH = (r1 - r0) * incY / 2;
+            StdDraw.picture(left + halfW, top - halfH, cellImage.getSubimage(c0, r0, c1 - c0, r1 - r0), 2 * halfW, 2 * halfH);
+            StdDraw.drawLayer(gridLayer, left + halfW, top - halfH, halfW, halfH);
+            StdDraw.showRegion(left + halfW, top - halfH, halfW, halfH);
+        }
+    }
+
+    /**
+     * Tells the board that cells of its grid were changed in place, rather than by giving it a
+     * new grid, so zoomed out shading counts them again
+     */
+    public void cellsChanged() {
+        sumsStale = true;
+    }
+
+    // Writes the color of every cell of the view into pixels. If dirty is not null, the tiles
+    // holding cells whose color changed are marked in it. Returns the number of tiles marked.
+    private int paintCells(boolean[] dirty) {
+        int dead = background.getRGB();
+        int alive = StdDraw.GRAY.getRGB();
+        int tileCols = (viewCols + TILE - 1) / TILE;
+        int marked = 0;
+        for (int r = 0; r < viewRows; r++) {
+            boolean[] cells = board[viewRow + r];
+            int base = r * viewCols;
+            int labelBase = (viewRow + r) * cols + viewCol;
+            int tileBase = (r / TILE) * tileCols;
+            for (int c = 0; c < viewCols; c++) {
+                int rgb;
+                if (!cells[viewCol + c]) {
+                    rgb = dead;
+                } else if (labels != null) {
+                    rgb = COMMUNITY_COLORS[labels[labelBase + c] % COMMUNITY_COLORS.length];
+                } else {
+                    rgb = alive;
+                }
+                if (pixels[base + c] != rgb) {
+                    pixels[base + c] = rgb;
+                    if (dirty != null && !dirty[tileBase + c / TILE]) {
+                        dirty[tileBase + c / TILE] = true;
+                        marked++;
+                    }
                 }
             }
         }
-        StdDraw.setPenColor(c);
+        return marked;
+    }
+
+    // True when the view has more cells than the board area has pixels, in either direction
+    private boolean isAggregated() {
+        return viewCols > StdDraw.widthInPixels(2 * halfWidth) || viewRows > StdDraw.heightInPixels(2 * halfHeight);
+    }
+
+    // Shades each pixel of the board area by the share of alive cells under it
+    private void drawDensity() {
+        int width = Math.min(viewCols, StdDraw.widthInPixels(2 * halfWidth));
+        int height = Math.min(viewRows, StdDraw.heightInPixels(2 * halfHeight));
+        if (densityImage == null || densityImage.getWidth() != width || densityImage.getHeight() != height) {
+            densityImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            densityPixels = ((DataBufferInt)densityImage.getRaster().getDataBuffer()).getData();
+        }
+        updateShades();
+        countSums();
+
+        // Each pixel covers a block of whole cells, blocks differ in size by at most one cell a side
+        if (densityCols.length != width + 1) {
+            densityCols = new int[width + 1];
+        }
+        for (int px = 0; px <= width; px++) {
+            densityCols[px] = viewCol + (int)((long)px * viewCols / width);
+        }
+        int stride = cols + 1;
+        for (int py = 0; py < height; py++) {
+            int top = viewRow + (int)((long)py * viewRows / height);
+            int bottom = viewRow + (int)((long)(py + 1) * viewRows / height);
+            int above = top * stride;
+            int below = bottom * stride;
+            int base = py * width;
+            for (int px = 0; px < width; px++) {
+                int left = densityCols[px];
+                int right = densityCols[px + 1];
+                long alive = sums[below + right] - sums[below + left] - sums[above + right] + sums[above + left];
+                long cells = (long)(bottom - top) * (right - left);
+                densityPixels[base + px] = shades[(int)(alive * 255 / cells)];
+            }
+        }
+        StdDraw.picture(x, y, densityImage, 2 * halfWidth, 2 * halfHeight);
+    }
+
+    // Recomputes the shades when the colors changed
+    private void updateShades() {
+        int dead = background.getRGB();
+        int alive = StdDraw.GRAY.getRGB();
+        if (dead == shadesDead && alive == shadesAlive) {
+            return;
+        }
+        shadesDead = dead;
+        shadesAlive = alive;
+        for (int i = 0; i < shades.length; i++) {
+            int r = ((dead >> 16 & 0xFF) * (255 - i) + (alive >> 16 & 0xFF) * i) / 255;
+            int g = ((dead >> 8 & 0xFF) * (255 - i) + (alive >> 8 & 0xFF) * i) / 255;
+            int b = ((dead & 0xFF) * (255 - i) + (alive & 0xFF) * i) / 255;
+            shades[i] = (r << 16) | (g << 8) | b;
+        }
+    }
+
+    // Counts the summed-area table for the current grid, reusing its array
+    private void countSums() {
+        int stride = cols + 1;
+        int length = (rows + 1) * stride;
+        if (sumsOf == board && !sumsStale && sums.length == length) {
+            return;
+        }
+        if (sums.length != length) {
+            sums = new int[length];  // Row 0 and column 0 stay 0
+        }
+        for (int r = 0; r < rows; r++) {
+            boolean[] cells = board[r];
+            int above = r * stride;
+            int base = above + stride;
+            int rowCount = 0;
+            for (int c = 0; c < cols; c++) {
+                if (cells[c]) {
+                    rowCount++;
+                }
+                sums[base + c + 1] = sums[above + c + 1] + rowCount;
+            }
+        }
+        sumsOf = board;
+        sumsStale = false;
     }
 
     public void drawAxes() {
+        if (StdDraw.widthInPixels(incX) < MIN_GRIDLINE_PIXELS || StdDraw.heightInPixels(incY) < MIN_GRIDLINE_PIXELS) {
+            return;
+        }
         for (double horz = lowerX - incX/2; horz <= upperX + incX/2; horz += incX) {
             StdDraw.line(horz, lowerY - incY/2, horz, upperY + incY/2);
         }
@@ -83,10 +406,41 @@ public class Board extends Rectangle {
         }
     }
 
+    // Puts the border and gridlines over the cells, drawing them into the layer first if
+    // anything they depend on changed since it was drawn
+    private void drawGridLayer() {
+        int widthPixels = StdDraw.widthInPixels(2 * halfWidth);
+        int heightPixels = StdDraw.heightInPixels(2 * halfHeight);
+        boolean moved = gridLayer == null || layerX != x || layerY != y || layerHalfWidth != halfWidth
+                || layerHalfHeight != halfHeight || layerWidthPixels != widthPixels || layerHeightPixels != heightPixels;
+        if (moved || layerViewRows != viewRows || layerViewCols != viewCols || layerColor != color.getRGB()
+                || layerPenRadius != StdDraw.getPenRadius()) {
+            if (moved) {
+                gridLayer = StdDraw.createLayer(x, y, halfWidth, halfHeight);
+            }
+            StdDraw.beginLayer(gridLayer);
+            super.draw();
+            drawAxes();
+            StdDraw.endLayer();
+
+            layerX = x;
+            layerY = y;
+            layerHalfWidth = halfWidth;
+            layerHalfHeight = halfHeight;
+            layerViewRows = viewRows;
+            layerViewCols = viewCols;
+            layerColor = color.getRGB();
+            layerWidthPixels = widthPixels;
+            layerHeightPixels = heightPixels;
+            layerPenRadius = StdDraw.getPenRadius();
+        }
+        StdDraw.drawLayer(gridLayer);
+    }
+
     public void draw() {
         calculateBounds();
         drawGrid();
-        super.draw();
-        drawAxes();
+        color = StdDraw.getPenColor();
+        drawGridLayer();
     }
 }
@@ -0,0 +1,150 @@
+package conwaygame;
+/*
+ * The alive cells of a mostly empty board, kept as a list of positions instead of a grid.
+ *
+ * A cell's position is row * cols + col, stored as a long so boards as big as 100000x100000
+ * fit. Memory and time grow with the population, not with rows * cols, so a cell list file
+ * for a huge board can be read, checked and written again without building a grid for it.
+ * Positions can be added in any order; they are sorted and duplicates dropped the first time
+ * the cells are looked at.
+ *
+ * GameOfLife steps a full boolean[][] grid, so loading a cell list into a game (fill) does build
+ * one, and refuses boards of more than MAX_GRID_CELLS cells.
+ */
+
+import java.util.Arrays;
+import java.util.InputMismatchException;
+
+public class CellList {
+
+    public static final long MAX_GRID_CELLS = 1L << 27;  // Largest board fill() builds, 128 MB for each boolean grid
+
+    private final int rows;
+    private final int cols;
+    private long generation;
+    private long[] positions = new long[64];
+    private int size;
+    private boolean sorted = true;  // positions[0..size) is strictly increasing
+
+    /**
+     * Creates an empty cell list
+     * @param rows number of rows of the board
+     * @param cols number of columns of the board
+     */
+    public CellList(int rows, int cols) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("board must have at least one row and column, got " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Lists the alive cells of grid
+     * @param grid the grid to list
+     * @param generation generation number of grid
+     * @return CellList holding the alive cells of grid
+     */
+    public static CellList of(boolean[][] grid, long generation) {
+        CellList list = new CellList(grid.length, grid[0].length);
+        list.generation = generation;
+        for (int r = 0; r < grid.length; r++) {
+            boolean[] cells = grid[r];
+            for (int c = 0; c < cells.length; c++) {
+                if (cells[c]) {
+                    list.add(r, c);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Marks a cell alive
+     * @param row row position of the cell
+     * @param col column position of the cell
+     */
+    public void add(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IllegalArgumentException("cell (" + col + ", " + row + ") is outside the " + cols + "x" + rows + " board");
+        }
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, 2 * size);
+        }
+        long position = (long)row * cols + col;
+        if (size > 0 && position <= positions[size - 1]) {
+            sorted = false;
+        }
+        positions[size++] = position;
+    }
+
+    /**
+     * Returns the number of alive cells
+     * @return int for the population
+     */
+    public int size() {
+        normalize();
+        return size;
+    }
+
+    /**
+     * Returns the position of the i-th alive cell in row-major order
+     * @param i index of the cell, from 0 to size() - 1
+     * @return long for row * cols + col of the cell
+     */
+    public long position(int i) {
+        normalize();
+        return positions[i];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * Loads the cells into game, replacing its grid and generation
+     * @param game the game whose grid is replaced
+     * @throws InputMismatchException if the board has more than MAX_GRID_CELLS cells
+     */
+    public void fill(GameOfLife game) {
+        if (rows > MAX_GRID_CELLS / cols) {
+            throw new InputMismatchException("a " + cols + "x" + rows + " board is more than the "
+                                             + MAX_GRID_CELLS + " cells a game can hold");
+        }
+        normalize();
+        boolean[][] grid = new boolean[rows][cols];
+        for (int i = 0; i < size; i++) {
+            grid[(int)(positions[i] / cols)][(int)(positions[i] % cols)] = true;
+        }
+        game.setGrid(grid, size);
+        game.setGeneration(generation);
+    }
+
+    // Sorts the positions and drops duplicates
+    private void normalize() {
+        if (sorted) {
+            return;
+        }
+        Arrays.sort(positions, 0, size);
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (kept == 0 || positions[i] != positions[kept - 1]) {
+                positions[kept++] = positions[i];
+            }
+        }
+        size = kept;
+        sorted = true;
+    }
+}
@@ -0,0 +1,275 @@
+package conwaygame;
+/*
+ * File formats that list only the alive cells, so the file's size grows with the population
+ * instead of with rows * cols.
+ *
+ * Life 1.06 text: a "#Life 1.06" line followed by one "x y" (column row) pair per alive cell.
+ * The format has no board size, so it is written as a "#D size cols rows" comment that other
+ * programs skip. Files without it get a board just big enough for their cells.
+ *
+ * Binary cell list (all varints are unsigned LEB128):
+ *   magic "GOLC", version byte, rows, cols, generation, population,
+ *   then for each alive cell in row-major order the gap since the previous one,
+ *   where a cell's position is row * cols + col and the first gap is counted from -1.
+ *
+ * Files are read into and written from a CellList, which holds only the alive cells, so a
+ * 100000x100000 board with 50k cells costs as much as any other 50k cells. Only loading the
+ * list into a GameOfLife builds a grid, see CellList.fill().
+ */
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+
+public class CellListFormat {
+
+    public static final String LIFE_HEADER = "#Life 1.06";
+    public static final String LIFE_EXTENSION = ".lif";
+    public static final String MAGIC = "GOLC";
+    public static final String BINARY_EXTENSION = ".golc";
+    public static final int VERSION = 1;
+
+    private static final String SIZE_COMMENT = "#D size ";
+
+    /**
+     * Reads a Life 1.06 cell list from in into game, replacing its grid
+     * @param in input positioned at the #Life 1.06 line
+     * @param game the game whose grid is replaced
+     */
+    public static void readLife(ChannelInput in, GameOfLife game) throws IOException {
+        readLife(in).fill(game);
+    }
+
+    /**
+     * Reads a Life 1.06 cell list from in
+     * @param in input positioned at the #Life 1.06 line
+     * @return CellList of the alive cells
+     */
+    public static CellList readLife(ChannelInput in) throws IOException {
+        int rows = -1;
+        int cols = -1;
+
+        // Comments, which may hold the board size
+        while (in.skipWhitespace() && in.peek() == '#') {
+            if (in.startsWith(SIZE_COMMENT)) {
+                for (int i = 0; i < SIZE_COMMENT.length(); i++) {
+                    in.read();
+                }
+                cols = in.readInt();
+                rows = in.readInt();
+            }
+            in.skipLine();
+        }
+
+        if (rows > 0 && cols > 0) {
+            CellList list = new CellList(rows, cols);
+            while (in.skipWhitespace()) {
+                int col = in.readInt();
+                int row = in.readInt();
+                if (row < 0 || row >= rows || col < 0 || col >= cols) {
+                    throw new InputMismatchException("cell (" + col + ", " + row + ") is outside the " + cols + "x" + rows + " board");
+                }
+                list.add(row, col);
+            }
+            return list;
+        }
+
+        // No size given, so the cells are kept until their bounding box is known
+        int[] coords = new int[64];
+        int n = 0;
+        int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
+        int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
+        while (in.skipWhitespace()) {
+            int col = in.readInt();
+            int row = in.readInt();
+            if (n + 2 > coords.length) {
+                coords = Arrays.copyOf(coords, 2 * coords.length);
+            }
+            coords[n++] = row;
+            coords[n++] = col;
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minCol = Math.min(minCol, col);
+            maxCol = Math.max(maxCol, col);
+        }
+        if (n == 0) {
+            throw new InputMismatchException("Life 1.06 file has no cells and no size");
+        }
+        long boxRows = (long)maxRow - minRow + 1;
+        long boxCols = (long)maxCol - minCol + 1;
+        if (boxRows > Integer.MAX_VALUE || boxCols > Integer.MAX_VALUE) {
+            throw new InputMismatchException("cells span " + boxCols + "x" + boxRows + ", more than a board can hold");
+        }
+
+        CellList list = new CellList((int)boxRows, (int)boxCols);
+        for (int i = 0; i < n; i += 2) {
+            list.add(coords[i] - minRow, coords[i + 1] - minCol);
+        }
+        return list;
+    }
+
+    /**
+     * Reads a binary cell list from in into game, replacing its grid and generation
+     * @param in input positioned at the magic bytes
+     * @param game the game whose grid is replaced
+     */
+    public static void readBinary(ChannelInput in, GameOfLife game) throws IOException {
+        readBinary(in).fill(game);
+    }
+
+    /**
+     * Reads a binary cell list from in
+     * @param in input positioned at the magic bytes
+     * @return CellList of the alive cells, with the generation from the header
+     */
+    public static CellList readBinary(ChannelInput in) throws IOException {
+        for (int i = 0; i < MAGIC.length(); i++) {
+            if (in.read() != MAGIC.charAt(i)) {
+                throw new InputMismatchException("not a binary cell list");
+            }
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new InputMismatchException("unsupported binary cell list version " + version);
+        }
+        long rows = readVarint(in);
+        long cols = readVarint(in);
+        long generation = readVarint(in);
+        long population = readVarint(in);
+        if (rows <= 0 || cols <= 0 || rows > Integer.MAX_VALUE || cols > Integer.MAX_VALUE || population > rows * cols) {
+            throw new InputMismatchException("invalid binary cell list header " + rows + "x" + cols + ", " + population + " cells");
+        }
+
+        CellList list = new CellList((int)rows, (int)cols);
+        list.setGeneration(generation);
+        long cell = -1;
+        for (long i = 0; i < population; i++) {
+            long gap = readVarint(in);
+            // Cells are listed in increasing order, so a gap of 0 would repeat the cell before
+            if (gap == 0) {
+                throw new InputMismatchException("cell " + cell + " is listed twice");
+            }
+            if (gap < 0 || gap >= rows * cols - cell) {
+                throw new InputMismatchException("a cell after " + cell + " is outside the " + rows + "x" + cols + " board");
+            }
+            cell += gap;
+            list.add((int)(cell / cols), (int)(cell % cols));
+        }
+        return list;
+    }
+
+    /**
+     * Writes the game's grid to file as a Life 1.06 cell list
+     * @param file name of the file, replaced if it exists
+     * @param grid the grid to write
+     */
+    public static void writeLife(String file, boolean[][] grid) throws IOException {
+        writeLife(file, CellList.of(grid, 0));
+    }
+
+    /**
+     * Writes a cell list to file in the Life 1.06 format
+     * @param file name of the file, replaced if it exists
+     * @param cells the cells to write
+     */
+    public static void writeLife(String file, CellList cells) throws IOException {
+        long cols = cells.getCols();
+        try (Writer out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            out.write(LIFE_HEADER + "\n");
+            out.write(SIZE_COMMENT + cols + " " + cells.getRows() + "\n");
+            for (int i = 0; i < cells.size(); i++) {
+                long position = cells.position(i);
+                out.write((position % cols) + " " + (position / cols) + "\n");
+            }
+        }
+    }
+
+    /**
+     * Writes the game's grid to file as a binary cell list
+     * @param file name of the file, replaced if it exists
+     * @param game the game to write
+     */
+    public static void writeBinary(String file, GameOfLife game) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeBinary(channel, game.getGrid(), game.getGeneration());
+        }
+    }
+
+    /**
+     * Writes grid to channel as a binary cell list
+     * @param channel where the cell list is written, not closed
+     * @param grid the grid to write
+     * @param generation generation number stored in the header
+     */
+    public static void writeBinary(WritableByteChannel channel, boolean[][] grid, long generation) throws IOException {
+        writeBinary(channel, CellList.of(grid, generation));
+    }
+
+    /**
+     * Writes a cell list to channel in the binary format
+     * @param channel where the cell list is written, not closed
+     * @param cells the cells to write, with the generation number stored in the header
+     */
+    public static void writeBinary(WritableByteChannel channel, CellList cells) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        for (int i = 0; i < MAGIC.length(); i++) {
+            buf.put((byte)MAGIC.charAt(i));
+        }
+        buf.put((byte)VERSION);
+        putVarint(buf, cells.getRows());
+        putVarint(buf, cells.getCols());
+        putVarint(buf, cells.getGeneration());
+        putVarint(buf, cells.size());
+
+        long previous = -1;
+        for (int i = 0; i < cells.size(); i++) {
+            if (buf.remaining() < 10) {
+                flush(buf, channel);
+            }
+            long cell = cells.position(i);
+            putVarint(buf, cell - previous);
+            previous = cell;
+        }
+        flush(buf, channel);
+    }
+
+    private static long readVarint(ChannelInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new InputMismatchException("binary cell list ends in the middle of a number");
+            }
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new InputMismatchException("varint longer than 64 bits at byte " + in.position());
+    }
+
+    private static void putVarint(ByteBuffer buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte)value);
+    }
+
+    private static void flush(ByteBuffer buf, WritableByteChannel channel) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
@@ -0,0 +1,285 @@
+package conwaygame;
+/*
+ * Buffered byte reader over a channel, used by the grid readers in place of StdIn.
+ *
+ * Tokens are parsed straight out of the byte buffer, so reading a cell does not go through
+ * Scanner's regular expressions or create a String. Works over a FileChannel as well as any
+ * other channel, such as Channels.newChannel(System.in).
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+public class ChannelInput implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] bytes;   // Backing array of buffer, read from directly
+    private int pos;              // Next unread byte in bytes
+    private int limit;            // End of the valid bytes in bytes
+    private long consumed;        // Bytes of the channel that came before bytes[0]
+    private boolean eof;
+
+    public ChannelInput(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ChannelInput(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.bytes = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Opens file for reading
+     * @param file name of the file
+     * @return ChannelInput reading from the start of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static ChannelInput open(String file) throws IOException {
+        return new ChannelInput(FileChannel.open(Paths.get(file), StandardOpenOption.READ));
+    }
+
+    /**
+     * Returns the next byte without consuming it
+     * @return the byte as 0-255, or -1 at the end of the input
+     */
+    public int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return bytes[pos] & 0xFF;
+    }
+
+    /**
+     * Checks whether the unread input starts with prefix, without consuming anything.
+     * prefix must fit in the buffer.
+     * @param prefix bytes to look for, as ASCII characters
+     * @return true if the next prefix.length() bytes match
+     */
+    public boolean startsWith(String prefix) throws IOException {
+        if (!ensure(prefix.length())) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[pos + i] != (byte)prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads one byte
+     * @return the byte as 0-255, or -1 at the end of the input
+     */
+    public int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return bytes[pos++] & 0xFF;
+    }
+
+    /**
+     * Reads len bytes into dst, waiting for more input until all of them have arrived
+     * @throws NoSuchElementException if the input ends first
+     */
+    public void readFully(byte[] dst, int off, int len) throws IOException {
+        while (len > 0) {
+            if (pos == limit && !fill()) {
+                throw new NoSuchElementException("input ended " + len + " bytes early");
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(bytes, pos, dst, off, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Skips spaces, tabs and line breaks (anything up to and including ' ')
+     * @return false if the end of the input was reached
+     */
+    public boolean skipWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return false;
+            }
+            if ((bytes[pos] & 0xFF) > ' ') {
+                return true;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Skips spaces, tabs and other whitespace up to the next token or line break
+     * @return the next byte, '\n' at a line break, or -1 if the end of the input was reached
+     */
+    public int skipSpaces() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            int b = bytes[pos] & 0xFF;
+            if (b > ' ' || b == '\n') {
+                return b;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Skips the rest of the current line, including the line break
+     */
+    public void skipLine() throws IOException {
+        int b;
+        while ((b = read()) != -1 && b != '\n') {
+            // keep skipping
+        }
+    }
+
+    /**
+     * Reads the next whitespace separated token as an int
+     * @return the int value of the token
+     * @throws InputMismatchException if the token is not an int
+     * @throws NoSuchElementException if there are no more tokens
+     */
+    public int readInt() throws IOException {
+        if (!skipWhitespace()) {
+            throw new NoSuchElementException("attempts to read an 'int' value, but no more tokens are available");
+        }
+        boolean negative = false;
+        if (peek() == '-' || peek() == '+') {
+            negative = (read() == '-');
+        }
+
+        long value = 0;
+        int digits = 0;
+        int b;
+        while ((b = peek()) >= '0' && b <= '9') {
+            value = 10 * value + (b - '0');
+            if (value > (long)Integer.MAX_VALUE + 1) {
+                throw new InputMismatchException("int value out of range at byte " + position());
+            }
+            pos++;
+            digits++;
+        }
+        if (digits == 0 || (b > ' ')) {
+            throw new InputMismatchException("attempts to read an 'int' value, but the token at byte " + position() + " is not one");
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw new InputMismatchException("int value out of range at byte " + position());
+        }
+        return (int)value;
+    }
+
+    /**
+     * Reads the next whitespace separated token as a boolean. Accepts true and false in any
+     * case as well as 1 and 0, the same tokens StdIn.readBoolean() does.
+     * @return the boolean value of the token
+     * @throws InputMismatchException if the token is not a boolean
+     * @throws NoSuchElementException if there are no more tokens
+     */
+    public boolean readBoolean() throws IOException {
+        if (!skipWhitespace()) {
+            throw new NoSuchElementException("attempts to read a 'boolean' value, but no more tokens are available");
+        }
+        long start = position();
+        boolean value;
+        switch (read()) {
+            case '1':
+                value = true;
+                break;
+            case '0':
+                value = false;
+                break;
+            case 't': case 'T':
+                value = true;
+                expect("rue", start);
+                break;
+            case 'f': case 'F':
+                value = false;
+                expect("alse", start);
+                break;
+            default:
+                throw mismatch(start);
+        }
+        if (peek() > ' ') {
+            throw mismatch(start);
+        }
+        return value;
+    }
+
+    /**
+     * Returns how many bytes have been consumed from the channel
+     * @return long for the position of the next unread byte
+     */
+    public long position() {
+        return consumed + pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Matches the rest of a true/false token, ignoring case like StdIn does
+    private void expect(String rest, long start) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if ((read() | 0x20) != rest.charAt(i)) {
+                throw mismatch(start);
+            }
+        }
+    }
+
+    private InputMismatchException mismatch(long start) {
+        return new InputMismatchException("attempts to read a 'boolean' value, but the token at byte " + start + " is not one");
+    }
+
+    // Refills the buffer, returns false once the channel has no more bytes
+    private boolean fill() throws IOException {
+        return ensure(1);
+    }
+
+    // Makes sure at least n unread bytes are buffered, moving the unread bytes to the front
+    // of the buffer first. Returns false if the channel ends before n bytes are available.
+    private boolean ensure(int n) throws IOException {
+        if (limit - pos >= n) {
+            return true;
+        }
+        if (n > bytes.length) {
+            throw new IllegalArgumentException("cannot buffer " + n + " bytes, buffer holds " + bytes.length);
+        }
+        int remaining = limit - pos;
+        System.arraycopy(bytes, pos, bytes, 0, remaining);
+        consumed += pos;
+        pos = 0;
+        limit = remaining;
+
+        while (limit < n && !eof) {
+            buffer.clear();
+            buffer.position(limit);
+            int read = channel.read(buffer);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+        return limit >= n;
+    }
+}
@@ -0,0 +1,335 @@
+package conwaygame;
+/*
+ * Labels the communities of a grid with flat-array union find.
+ *
+ * The board wraps around like it does in GameOfLife, so a cell in the top row touches the
+ * bottom row and a cell in the left column touches the right column. Labels are dense
+ * (0 to count-1) and dead cells get -1. Buffers are kept between calls so labeling the
+ * next generation of the same sized board does not allocate.
+ */
+
+import java.util.Arrays;
+
+public class CommunityLabeler {
+
+    private int rows;
+    private int cols;
+    private int count;        // Number of communities found by the last call to label()
+
+    private int[] parent;     // Union find forest over cell indices (row * cols + col)
+    private int[] labels;     // Dense community label of each cell, -1 for dead cells
+
+    // Per-community accumulators for the bounding boxes and centroids. On a torus the
+    // tightest box along an axis starts just after the largest run of rows (or columns) the
+    // community doesn't touch, counting the run that wraps from the last line back to the
+    // first. Lines are visited in order, so each axis tracks the first and last line seen,
+    // the largest gap between two lines seen so far, the line that gap ends at and how many
+    // cells came before it. The centroid is then measured in the frame starting at the box.
+    private int[] firstR, lastR, gapR, startR, beforeR;
+    private int[] firstC, lastC, gapC, startC, beforeC, seenC;
+    private long[] sumR, sumC;
+
+    public CommunityLabeler() {
+        growAccumulators(16);
+    }
+
+    /**
+     * Labels the communities of grid
+     * @param grid the board to label
+     * @return the number of communities in the grid
+     */
+    public int label(boolean[][] grid) {
+        return label(grid, null);
+    }
+
+    /**
+     * Labels the communities of grid and fills in stats for each one in the same pass
+     * @param grid the board to label
+     * @param stats where the statistics are written, can be null if only labels are needed
+     * @return the number of communities in the grid
+     */
+    public int label(boolean[][] grid, CommunityStats stats) {
+        return label(grid, stats, null);
+    }
+
+    /**
+     * Labels the communities of grid into a caller supplied buffer
+     * @param grid the board to label
+     * @param stats where the statistics are written, can be null if only labels are needed
+     * @param out buffer of at least rows * cols entries the labels are written into,
+     * or null to use the labeler's own buffer
+     * @return the number of communities in the grid
+     */
+    public int label(boolean[][] grid, CommunityStats stats, int[] out) {
+        resize(grid.length, grid[0].length);
+        if (out != null && out.length < rows * cols) {
+            throw new IllegalArgumentException("label buffer holds " + out.length + " cells, board has " + (rows * cols));
+        }
+        union(grid);
+
+        int[] labels = (out != null) ? out : this.labels;
+        count = 0;
+        Arrays.fill(labels, 0, rows * cols, -1);
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int i = r * cols + c;
+                if (!grid[r][c]) {
+                    continue;
+                }
+
+                int root = find(i);
+                int id = labels[root];
+                if (id < 0) {
+                    // First cell of a new community, which is also its representative
+                    id = count++;
+                    labels[root] = id;
+                    if (stats != null) {
+                        startCommunity(id, stats);
+                        stats.row[id] = r;
+                        stats.col[id] = c;
+                    }
+                }
+                labels[i] = id;
+
+                if (stats != null) {
+                    // Rows come in order here
+                    if (firstR[id] < 0) {
+                        firstR[id] = r;
+                    } else if (r != lastR[id] && r - lastR[id] - 1 > gapR[id]) {
+                        gapR[id] = r - lastR[id] - 1;
+                        startR[id] = r;
+                        beforeR[id] = stats.size[id];
+                    }
+                    lastR[id] = r;
+                    stats.size[id]++;
+                    sumR[id] += r;
+                    sumC[id] += c;
+                }
+            }
+        }
+
+        if (stats != null) {
+            // Columns, visited in order
+            for (int c = 0; c < cols; c++) {
+                for (int r = 0; r < rows; r++) {
+                    if (!grid[r][c]) {
+                        continue;
+                    }
+                    int id = labels[r * cols + c];
+                    if (firstC[id] < 0) {
+                        firstC[id] = c;
+                    } else if (c != lastC[id] && c - lastC[id] - 1 > gapC[id]) {
+                        gapC[id] = c - lastC[id] - 1;
+                        startC[id] = c;
+                        beforeC[id] = seenC[id];
+                    }
+                    lastC[id] = c;
+                    seenC[id]++;
+                }
+            }
+
+            stats.count = count;
+            for (int id = 0; id < count; id++) {
+                finishCommunity(id, stats);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of communities found by the last call to label()
+     * @return int for number of communities
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the label array from the last call to label() without an out buffer. The
+     * array belongs to the labeler and is overwritten by the next call.
+     * @return int[] of labels indexed by row * cols + col, -1 for dead cells
+     */
+    public int[] getLabels() {
+        return labels;
+    }
+
+    // Joins every alive cell with its alive neighbors, wrapping around the edges
+    private void union(boolean[][] grid) {
+        for (int r = 0; r < rows; r++) {
+            boolean[] cur = grid[r];
+            boolean[] above = (r > 0) ? grid[r-1] : null;
+            for (int c = 0; c < cols; c++) {
+                if (!cur[c]) {
+                    continue;
+                }
+                int i = r * cols + c;
+                parent[i] = i;
+
+                // Neighbors that have already been visited in row-major order
+                if (c > 0 && cur[c-1]) {
+                    join(i, i - 1);
+                }
+                if (above != null) {
+                    int up = i - cols;
+                    if (c > 0 && above[c-1]) {
+                        join(i, up - 1);
+                    }
+                    if (above[c]) {
+                        join(i, up);
+                    }
+                    if (c < cols-1 && above[c+1]) {
+                        join(i, up + 1);
+                    }
+                }
+            }
+        }
+
+        // Seams: top row against bottom row, and left column against right column
+        boolean[] first = grid[0];
+        boolean[] last = grid[rows-1];
+        for (int c = 0; c < cols; c++) {
+            if (!first[c]) {
+                continue;
+            }
+            for (int d = -1; d <= 1; d++) {
+                int n = wrap(c + d, cols);
+                if (last[n]) {
+                    join(c, (rows-1) * cols + n);
+                }
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            if (!grid[r][0]) {
+                continue;
+            }
+            for (int d = -1; d <= 1; d++) {
+                int n = wrap(r + d, rows);
+                if (grid[n][cols-1]) {
+                    join(r * cols, n * cols + cols - 1);
+                }
+            }
+        }
+    }
+
+    private void join(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        // Lower index becomes the root so roots stay near the top-left of their community
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else {
+            parent[rootA] = rootB;
+        }
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];  // Path halving
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static int wrap(int i, int n) {
+        if (i < 0) {
+            return i + n;
+        }
+        if (i >= n) {
+            return i - n;
+        }
+        return i;
+    }
+
+    private void startCommunity(int id, CommunityStats stats) {
+        if (id >= firstR.length) {
+            growAccumulators(2 * firstR.length);
+        }
+        stats.ensureCapacity(id + 1);
+        stats.size[id] = 0;
+        firstR[id] = lastR[id] = firstC[id] = lastC[id] = -1;
+        gapR[id] = gapC[id] = 0;
+        startR[id] = beforeR[id] = startC[id] = beforeC[id] = seenC[id] = 0;
+        sumR[id] = sumC[id] = 0;
+    }
+
+    private void finishCommunity(int id, CommunityStats stats) {
+        int n = stats.size[id];
+
+        int start = axisStart(firstR[id], lastR[id], gapR[id], startR[id], rows);
+        int before = (start == firstR[id]) ? 0 : beforeR[id];
+        stats.top[id] = start;
+        stats.height[id] = axisExtent(firstR[id], lastR[id], gapR[id], rows);
+        stats.centroidRow[id] = centroid(sumR[id], n, before, rows);
+
+        start = axisStart(firstC[id], lastC[id], gapC[id], startC[id], cols);
+        before = (start == firstC[id]) ? 0 : beforeC[id];
+        stats.left[id] = start;
+        stats.width[id] = axisExtent(firstC[id], lastC[id], gapC[id], cols);
+        stats.centroidCol[id] = centroid(sumC[id], n, before, cols);
+    }
+
+    // First line of the box: the first line used, unless a gap inside is larger than the one
+    // that wraps from the last line used around to the first
+    private static int axisStart(int first, int last, int gap, int start, int lines) {
+        int wrapGap = first + lines - last - 1;
+        return (gap > wrapGap) ? start : first;
+    }
+
+    private static int axisExtent(int first, int last, int gap, int lines) {
+        int wrapGap = first + lines - last - 1;
+        return lines - Math.max(gap, wrapGap);
+    }
+
+    // Mean position of n cells whose positions add up to sum, measured in the box's frame:
+    // the before cells lying ahead of the box's first line count one lap further on.
+    // The result is put back in [0, lines).
+    private static double centroid(long sum, int n, int before, int lines) {
+        double mean = (sum + (double)before * lines) / n;
+        return (mean >= lines) ? mean - lines : mean;
+    }
+
+    private void resize(int r, int c) {
+        if (parent == null || r * c != parent.length) {
+            parent = new int[r * c];
+            labels = new int[r * c];
+        }
+        rows = r;
+        cols = c;
+    }
+
+    private void growAccumulators(int capacity) {
+        firstR = grow(firstR, capacity);
+        lastR = grow(lastR, capacity);
+        gapR = grow(gapR, capacity);
+        startR = grow(startR, capacity);
+        beforeR = grow(beforeR, capacity);
+        firstC = grow(firstC, capacity);
+        lastC = grow(lastC, capacity);
+        gapC = grow(gapC, capacity);
+        startC = grow(startC, capacity);
+        beforeC = grow(beforeC, capacity);
+        seenC = grow(seenC, capacity);
+        sumR = grow(sumR, capacity);
+        sumC = grow(sumC, capacity);
+    }
+
+    private static int[] grow(int[] arr, int capacity) {
+        int[] bigger = new int[capacity];
+        if (arr != null) {
+            System.arraycopy(arr, 0, bigger, 0, arr.length);
+        }
+        return bigger;
+    }
+
+    private static long[] grow(long[] arr, int capacity) {
+        long[] bigger = new long[capacity];
+        if (arr != null) {
+            System.arraycopy(arr, 0, bigger, 0, arr.length);
+        }
+        return bigger;
+    }
+}
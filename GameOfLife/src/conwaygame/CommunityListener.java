@@ -0,0 +1,20 @@
+package conwaygame;
+/*
+ * Receives the community events found by CommunityTracker after every generation.
+ *
+ * Ids are the persistent ids handed out by the tracker, not the per-generation labels.
+ */
+public interface CommunityListener {
+
+    // A community appeared that does not overlap any community of the previous generation
+    void born(long generation, int id);
+
+    // A community of the previous generation does not overlap any community anymore
+    void died(long generation, int id);
+
+    // Community absorbedId ran into community id and lost its own id
+    void merged(long generation, int id, int absorbedId);
+
+    // Part of community id broke off into a new community newId
+    void split(long generation, int id, int newId);
+}
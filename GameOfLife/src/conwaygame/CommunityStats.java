@@ -0,0 +1,72 @@
+package conwaygame;
+/*
+ * Per-community statistics filled in by CommunityLabeler.
+ *
+ * Every array is indexed by community label (0 to count-1), so a whole generation's
+ * statistics live in a handful of primitive arrays instead of one object per community.
+ * The arrays are only grown, never shrunk, so passing the same object back in every
+ * generation does not allocate once it has reached the largest community count seen.
+ */
+public class CommunityStats {
+    public int count;           // Number of communities found by the last labeling pass
+
+    public int[] size;          // Number of alive cells in the community
+    public int[] row;           // Representative cell (first cell of the community in row-major order)
+    public int[] col;
+
+    // Bounding box. The box starts at (top, left) and may run off the bottom or right edge,
+    // in which case it wraps around the board like the community itself does.
+    public int[] top;
+    public int[] left;
+    public int[] height;
+    public int[] width;
+
+    // Centroid, in the range [0, rows) and [0, cols), measured from the same side of the wrap as the box
+    public double[] centroidRow;
+    public double[] centroidCol;
+
+    public CommunityStats() {
+        this(16);
+    }
+
+    public CommunityStats(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    /**
+     * Makes sure there is room for at least n communities, keeping existing values
+     * @param n number of communities needed
+     */
+    public void ensureCapacity(int n) {
+        if (n <= size.length) {
+            return;
+        }
+        int[] oldSize = size, oldRow = row, oldCol = col;
+        int[] oldTop = top, oldLeft = left, oldHeight = height, oldWidth = width;
+        double[] oldCR = centroidRow, oldCC = centroidCol;
+
+        allocate(Math.max(n, 2 * size.length));
+
+        System.arraycopy(oldSize, 0, size, 0, oldSize.length);
+        System.arraycopy(oldRow, 0, row, 0, oldRow.length);
+        System.arraycopy(oldCol, 0, col, 0, oldCol.length);
+        System.arraycopy(oldTop, 0, top, 0, oldTop.length);
+        System.arraycopy(oldLeft, 0, left, 0, oldLeft.length);
+        System.arraycopy(oldHeight, 0, height, 0, oldHeight.length);
+        System.arraycopy(oldWidth, 0, width, 0, oldWidth.length);
+        System.arraycopy(oldCR, 0, centroidRow, 0, oldCR.length);
+        System.arraycopy(oldCC, 0, centroidCol, 0, oldCC.length);
+    }
+
+    private void allocate(int capacity) {
+        size = new int[capacity];
+        row = new int[capacity];
+        col = new int[capacity];
+        top = new int[capacity];
+        left = new int[capacity];
+        height = new int[capacity];
+        width = new int[capacity];
+        centroidRow = new double[capacity];
+        centroidCol = new double[capacity];
+    }
+}
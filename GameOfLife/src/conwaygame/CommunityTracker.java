@@ -0,0 +1,185 @@
+package conwaygame;
+/*
+ * Gives communities ids that stay the same from one generation to the next.
+ *
+ * Each generation is labeled and compared cell by cell against the previous label map.
+ * A community keeps the id of the previous community it overlaps the most, as long as it
+ * is also the community that previous one overlaps the most. Everything else gets a new id
+ * and is reported to the listener as a birth, death, merge or split.
+ */
+public class CommunityTracker {
+
+    private CommunityListener listener;
+    private long generation;  // Generation of the grid last passed to update()
+    private int nextId;
+    private int cols;
+
+    // The labeler and ids of the latest generation live in prev after update() returns,
+    // the two labelers are swapped every generation so neither label map gets copied
+    private CommunityLabeler prev = new CommunityLabeler();
+    private CommunityLabeler cur = new CommunityLabeler();
+    private int[] prevIds = new int[16];   // Persistent id by dense label
+    private int[] curIds = new int[16];
+    private int prevCount = -1;            // -1 until the first generation has been labeled
+
+    // Number of shared cells for each (previous label, current label) pair
+    private LongIntHashMap overlap = new LongIntHashMap();
+    private int[] bestChild = new int[16], bestChildOverlap = new int[16];
+    private int[] bestParent = new int[16], bestParentOverlap = new int[16];
+
+    /**
+     * @param listener receives the community events, can be null if only the ids are needed
+     */
+    public CommunityTracker(CommunityListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Labels grid and matches its communities against the previous generation's
+     * @param grid the generation that was just computed
+     * @param generation the game's generation number for grid, reported with each event
+     */
+    public void update(boolean[][] grid, long generation) {
+        this.generation = generation;
+        int count = cur.label(grid);
+        cols = grid[0].length;
+        curIds = fit(curIds, count);
+
+        if (prevCount < 0 || prev.getLabels().length != cur.getLabels().length) {
+            // A new board size can't be compared cell by cell, so everything before it ends here
+            if (listener != null) {
+                for (int p = 0; p < prevCount; p++) {
+                    listener.died(generation, prevIds[p]);
+                }
+            }
+            for (int c = 0; c < count; c++) {
+                curIds[c] = nextId++;
+                if (listener != null) {
+                    listener.born(generation, curIds[c]);
+                }
+            }
+            swap(count);
+            return;
+        }
+
+        countOverlaps();
+        matchCommunities(count);
+
+        // Current communities either continue a previous one, broke off one or are brand new
+        for (int c = 0; c < count; c++) {
+            int p = bestParent[c];
+            if (p >= 0 && bestChild[p] == c) {
+                curIds[c] = prevIds[p];
+            } else {
+                curIds[c] = nextId++;
+                if (listener != null) {
+                    if (p < 0) {
+                        listener.born(generation, curIds[c]);
+                    } else {
+                        listener.split(generation, prevIds[p], curIds[c]);
+                    }
+                }
+            }
+        }
+
+        // Previous communities either continued, ran into another one or are gone
+        if (listener != null) {
+            for (int p = 0; p < prevCount; p++) {
+                int c = bestChild[p];
+                if (c < 0) {
+                    listener.died(generation, prevIds[p]);
+                } else if (bestParent[c] != p) {
+                    listener.merged(generation, curIds[c], prevIds[p]);
+                }
+            }
+        }
+
+        swap(count);
+    }
+
+    /**
+     * Returns the persistent id of the community the cell belongs to in the latest generation
+     * @param row row position of the cell
+     * @param col column position of the cell
+     * @return the id, or -1 if the cell is dead or nothing has been tracked yet
+     */
+    public int getId(int row, int col) {
+        if (prevCount < 0) {
+            return -1;
+        }
+        int label = prev.getLabels()[row * cols + col];
+        return (label < 0) ? -1 : prevIds[label];
+    }
+
+    /**
+     * Returns the generation number of the latest grid passed to update()
+     * @return long for the latest generation tracked
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    private void countOverlaps() {
+        overlap.clear();
+        int[] before = prev.getLabels();
+        int[] after = cur.getLabels();
+        for (int i = 0; i < after.length; i++) {
+            int p = before[i];
+            int c = after[i];
+            if (p >= 0 && c >= 0) {
+                overlap.increment(((long)p << 32) | c);
+            }
+        }
+    }
+
+    // For every community find the community on the other side it shares the most cells
+    // with, ties going to the lower label
+    private void matchCommunities(int count) {
+        bestChild = fit(bestChild, prevCount);
+        bestChildOverlap = fit(bestChildOverlap, prevCount);
+        bestParent = fit(bestParent, count);
+        bestParentOverlap = fit(bestParentOverlap, count);
+        for (int p = 0; p < prevCount; p++) {
+            bestChild[p] = -1;
+            bestChildOverlap[p] = 0;
+        }
+        for (int c = 0; c < count; c++) {
+            bestParent[c] = -1;
+            bestParentOverlap[c] = 0;
+        }
+
+        for (int slot = 0; slot < overlap.capacity(); slot++) {
+            if (!overlap.isUsed(slot)) {
+                continue;
+            }
+            long key = overlap.keyAt(slot);
+            int p = (int)(key >>> 32);
+            int c = (int)key;
+            int shared = overlap.valueAt(slot);
+
+            if (shared > bestChildOverlap[p] || (shared == bestChildOverlap[p] && c < bestChild[p])) {
+                bestChild[p] = c;
+                bestChildOverlap[p] = shared;
+            }
+            if (shared > bestParentOverlap[c] || (shared == bestParentOverlap[c] && p < bestParent[c])) {
+                bestParent[c] = p;
+                bestParentOverlap[c] = shared;
+            }
+        }
+    }
+
+    private void swap(int count) {
+        CommunityLabeler tmpLabeler = prev;
+        prev = cur;
+        cur = tmpLabeler;
+
+        int[] tmpIds = prevIds;
+        prevIds = curIds;
+        curIds = tmpIds;
+        prevCount = count;
+    }
+
+    private static int[] fit(int[] arr, int n) {
+        return (n <= arr.length) ? arr : new int[Math.max(n, 2 * arr.length)];
+    }
+}
@@ -6,11 +6,12 @@ import java.awt.*;  // For colors
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 
 public class Driver {
 
-    public static final int DELAY = 250;
-
     public static final Color BACKGROUND_COLOR = new Color(40, 40, 40);
     public static final int BTN_HALFWIDTH = 10;
     public static final int BTN_HALFHEIGHT = 3;
@@ -25,7 +26,7 @@ public class Driver {
     public static final String[] inputNames = {"Open"};
     public static final String[] createNames = {"-", "+", "-", "+", "Save and Create"};
     public static final String[] methodNames = {"Cell State", "Is Alive", "Alive Neighbors",
-                                                  "Next Generation", "Next N Generations", "Communities", "Reset", "Save Grid"};
+                                                  "Next Generation", "Next N Generations", "Communities", "Play", "Reset", "Save Grid"};
     public static final Button[] OPTIONS = {
         new Button(6, 95, 4, 3, "Back", true),
         new Button(16, 95, 4, 3, "Quit", true)
@@ -43,6 +44,41 @@ public class Driver {
 
     public static GameOfLife game;
 
+    // Save Grid writes in the background, the result is shown once the main loop picks up saveMessage
+    public static SnapshotWriter snapshotWriter = new SnapshotWriter();
+    public static SnapshotStore snapshotStore = null;
+    public static volatile String saveMessage = null;
+    // How long Quit waits for queued saves before exiting anyway
+    public static final long QUIT_SAVE_TIMEOUT_MILLIS = 30_000;
+
+    // Opened patterns stay in memory so Reset doesn't parse the file again
+    public static final long PATTERN_CACHE_BYTES = 64L << 20;
+    public static PatternCache patternCache = new PatternCache(PATTERN_CACHE_BYTES, Driver::readGame);
+
+    // Play steps the game on its own thread, the main loop shows the latest generation once per
+    // screen refresh. The game is only touched here while the simulation is paused.
+    public static SimulationThread simulation = null;
+    public static final long FRAME_NANOS = 1_000_000_000L / refreshRate();
+    public static long nextFrame = 0;
+    public static long shownGeneration = -1;
+    // Speeds Play can run at in generations per second, picked with [ and ], 0 is as fast as possible
+    public static final int[] PLAY_RATES = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 0};
+    public static int playRate = 3;
+
+    // Performance overlay on the METHOD page, two columns of two lines just above methodText, toggled
+    // with h. Its numbers are worked out and redrawn at most every HUD_INTERVAL_NANOS so it costs
+    // little of what it measures.
+    public static PerformanceStats stats = new PerformanceStats();
+    public static final long HUD_INTERVAL_NANOS = 250_000_000L;
+    public static boolean showHud = false;
+    public static long nextHud = 0;
+    public static Text[] hudLines = {
+        new Text(23, 97, "", "LEFT"), new Text(61, 97, "", "LEFT"),
+        new Text(23, 94, "", "LEFT"), new Text(61, 94, "", "LEFT")
+    };
+    // Labels the generations shown on the METHOD page, separate from the game's own labeler
+    public static CommunityLabeler frameLabeler = new CommunityLabeler();
+
 
     // Following is declaring & initializing elements of pages
     // There is another initializeElements() method a bit further below
@@ -59,28 +95,44 @@ public class Driver {
     public static Text inputError = new Text(50, 35, "");
     public static Button inputSubmit = new Button(80, 50, BTN_HALFWIDTH, BTN_HALFHEIGHT, inputNames[0], true);
     public static Button[] inputs = new Button[]{inputSubmit};
+    public static final String[] inputExtensions = {RleFormat.EXTENSION, CellListFormat.LIFE_EXTENSION,
+                                                    CellListFormat.BINARY_EXTENSION, GridWriter.BINARY_EXTENSION,
+                                                    SnapshotStore.DATA_EXTENSION};
 
     // CREATE elements
     public static Button[] createBtns = new Button[createNames.length];
-    public static Board createBoard = new Board(50, 50, 20, 20, DEAFULT_ROWS_AND_COLS, DEAFULT_ROWS_AND_COLS, false, new boolean[DEAFULT_ROWS_AND_COLS][DEAFULT_ROWS_AND_COLS]);
+    public static Board createBoard = new Board(50, 50, 20, 20, DEAFULT_ROWS_AND_COLS, DEAFULT_ROWS_AND_COLS, false, new boolean[DEAFULT_ROWS_AND_COLS][DEAFULT_ROWS_AND_COLS], BACKGROUND_COLOR);
     public static Text createLabel = new Text(12,8, "Filename:");
     public static Rectangle createInput = new Rectangle(40, 8, 20, 3, true);
     public static Text createFilename = new Text(22, 8, "", "LEFT");
     public static Text createExtension = new Text(62, 8, ".txt");
     public static Text createError = new Text(50, 16, "");
+    public static final int MAX_CREATE_SIZE = 200;
+    // Painting cells by dragging: cells passed over are queued as row * cols + col and set to
+    // paintValue in one batch per frame, redrawing only the parts of the board that changed
+    public static boolean painting = false;
+    public static boolean paintValue;
+    public static int paintRow = -1;  // Last cell the drag passed over, -1 if it left the board
+    public static int paintCol = -1;
+    public static int[] paintCells = new int[256];
+    public static int paintCount = 0;
+    public static long nextPaint = 0;
 
     // METHOD elements
     public static Button[] methods = new Button[methodNames.length];
-    public static Board methodBoard = new Board(65, 45, 30, 30, -1, -1, false, null);
+    public static Board methodBoard = new Board(65, 45, 30, 30, -1, -1, false, null, BACKGROUND_COLOR);
     public static Text methodText = new Text(65, 90, "Select an Option");
     public static Rectangle generationsBox = new Rectangle(60, 80, 10, 3, true);
     public static Text stepsText = new Text(52, 80, "", "LEFT");
     public static Button methodSubmit = new Button(80, 80, 8, BTN_HALFHEIGHT, "Submit", true);
     public static String methodFilename = "";
+    public static String methodExtension = ".txt";
+    public static int methodVersion = -1;  // Version opened from a snapshot store, Reset goes back to it
 
     public static void main(String[] args) {
         initializeElements();
         StdDraw.enableDoubleBuffering();
+        StdDraw.enablePageFlipping();
         StdDraw.clear(BACKGROUND_COLOR);
         StdDraw.setXscale(0, 100);
         StdDraw.setYscale(0, 100);
@@ -89,40 +141,130 @@ public class Driver {
         displayPage(Page.CONSTRUCTOR);
         current = Page.CONSTRUCTOR;
 
+        // Sleep until there is input, or until the next frame is due while playing
+        StdDraw.enableEvents();
         while (true) {
-            if (StdDraw.isMousePressed()) {
+            StdDraw.UserEvent event;
+            boolean playing = current == Page.METHOD && simulation != null && simulation.isPlaying();
+            boolean hud = current == Page.METHOD && showHud;
+            boolean paint = current == Page.CREATE && paintCount > 0;
+            if (playing || hud || paint) {
+                long due = Long.MAX_VALUE;
+                if (playing) {
+                    due = nextFrame;
+                }
+                if (hud) {
+                    due = Math.min(due, nextHud);
+                }
+                if (paint) {
+                    due = Math.min(due, nextPaint);
+                }
+                // Rounded up, so the last part of a millisecond is slept through rather than polled
+                event = StdDraw.nextEvent(Math.max(0, (due - System.nanoTime() + 999_999) / 1_000_000));
+            } else {
+                event = StdDraw.nextEvent();
+            }
+
+            // Report finished saves
+            if (saveMessage != null) {
+                if (current == Page.METHOD) {
+                    methodText.text = saveMessage;
+                    displayPage(Page.METHOD);
+                }
+                saveMessage = null;
+            }
+
+            // Show the latest generation while playing, at most once per screen refresh
+            if (current == Page.METHOD && simulation != null && simulation.isPlaying() && System.nanoTime() >= nextFrame) {
+                nextFrame = System.nanoTime() + FRAME_NANOS;
+                showLatestGeneration();
+            }
+            RuntimeException failure = (current == Page.METHOD && simulation != null) ? simulation.takeFailure() : null;
+            if (failure != null) {
+                methodText.text = "Simulation stopped: " + failure.getMessage();
+                displayPage(Page.METHOD);
+            }
+            if (current == Page.METHOD && showHud && System.nanoTime() >= nextHud) {
+                nextHud = System.nanoTime() + HUD_INTERVAL_NANOS;
+                updateHud();
+            }
+            // Cells painted since the last frame
+            if (current == Page.CREATE && paintCount > 0 && System.nanoTime() >= nextPaint) {
+                nextPaint = System.nanoTime() + FRAME_NANOS;
+                applyPaint();
+            }
+
+            if (event == null) {
+                continue;
+            }
+
+            if (event.type == StdDraw.UserEvent.MOUSE_PRESSED) {
+                // Finish painting before a click can resize or save the board
+                if (paintCount > 0) {
+                    applyPaint();
+                }
+
                 // Check if option buttons in top-left are clicked
                 for (Button btn : OPTIONS) {
-                    if (btn.containsMouse()) {
+                    if (btn.contains(event.x, event.y)) {
                         run(btn);
                     }
                 }
 
                 // Check if buttons on current page are clicked
                 for (Button btn : activeButtons) {
-                    if (btn.containsMouse()) {
+                    if (btn.contains(event.x, event.y)) {
                         run(btn);
                     }
                 }
 
-                // Check if filling in grid on CREATE page
-                if (current == Page.CREATE && activeBoard.containsMouse()) {
-                    double mX = StdDraw.mouseX();
-                    double mY = StdDraw.mouseY();
+                // Check if filling in grid on CREATE page, the first cell decides what the drag paints
+                if (current == Page.CREATE && activeBoard.contains(event.x, event.y)) {
+                    int row = activeBoard.rowAt(event.y);
+                    int col = activeBoard.colAt(event.x);
 
-                    double[] coords = activeBoard.getCellCM(mX, mY);
-                    int row = (int)Math.round((activeBoard.upperY - coords[0]) / activeBoard.incY);
-                    int col = (int)Math.round((coords[1] - activeBoard.lowerX) / activeBoard.incX);
+                    painting = true;
+                    paintValue = !(activeBoard.board[row][col]);
+                    paintRow = row;
+                    paintCol = col;
+                    queuePaint(row, col);
+                }
+            }
 
-                    activeBoard.board[row][col] = !(activeBoard.board[row][col]);
-                    displayPage(Page.CREATE);
-                    StdDraw.pause(DELAY);
+            if (event.type == StdDraw.UserEvent.MOUSE_DRAGGED && painting && current == Page.CREATE) {
+                if (activeBoard.contains(event.x, event.y)) {
+                    int row = activeBoard.rowAt(event.y);
+                    int col = activeBoard.colAt(event.x);
+                    if (paintRow < 0) {
+                        queuePaint(row, col);
+                    } else {
+                        paintLine(paintRow, paintCol, row, col);
+                    }
+                    paintRow = row;
+                    paintCol = col;
+                } else {
+                    paintRow = -1;
+                }
+            }
+
+            if (event.type == StdDraw.UserEvent.MOUSE_RELEASED) {
+                painting = false;
+            }
+
+            if (event.type != StdDraw.UserEvent.KEY_TYPED) {
+                continue;
+            }
+
+            // Zooming and panning the board on the METHOD page, and the speed of Play
+            if (current == Page.METHOD) {
+                if (changePlayRate(event.key) || toggleHud(event.key) || navigate(methodBoard, event.key)) {
+                    displayPage(Page.METHOD);
                 }
             }
 
             // Check if typing on CREATE page
-            if ((current == Page.CREATE || current == Page.INPUT) && StdDraw.hasNextKeyTyped()) {
-                char keystroke = StdDraw.nextKeyTyped();
+            if (current == Page.CREATE || current == Page.INPUT) {
+                char keystroke = event.key;
                 String filename = (current == Page.CREATE) ? createFilename.text : inputFilename.text;
                 int len = filename.length();
                 if ((int)keystroke == 8) { // 8 is backspace in ASCII
@@ -170,6 +312,7 @@ public class Driver {
 
 
     public static void displayPage(Page page) {
+        long start = System.nanoTime();
         clearPage();
         for (Button option : OPTIONS) {
             option.changeColor(StdDraw.RED);
@@ -221,7 +364,7 @@ public class Driver {
 
                 Font t = StdDraw.getFont();
                 StdDraw.setFont(new Font("SansSerif", Font.PLAIN, 12));
-                StdDraw.text(50, 24, "Select cells to toggle them alive and dead.");
+                StdDraw.text(50, 24, "Click or drag over cells to toggle them alive and dead.");
                 StdDraw.setFont(t);
 
                 createLabel.draw();
@@ -238,7 +381,10 @@ public class Driver {
                 for (int i = 0; i < methods.length; i++) {
                     methods[i].changeColor(StdDraw.RED);
                 }
-                methodBoard.board = game.getGrid();
+                methodBoard.board = (simulation != null && simulation.isPlaying()) ? simulation.latest().grid : game.getGrid();
+                if (methodBoard.labels != null) {
+                    frameLabeler.label(methodBoard.board, null, methodBoard.labels);
+                }
                 methodBoard.changeColor(StdDraw.WHITE);
 
                 Font temp = StdDraw.getFont();
@@ -251,12 +397,18 @@ public class Driver {
                     stepsText.draw();
                     methodSubmit.changeColor(StdDraw.RED);
                 }
+                if (showHud) {
+                    drawHud();
+                }
                 
                 activeButtons = methods;
                 activeBoard = methodBoard;
                 break;
         }
         StdDraw.show(); // Here in order for double buffering to work
+        if (page == Page.METHOD) {
+            stats.recordRender(System.nanoTime() - start);
+        }
     }
         
 
@@ -286,6 +438,11 @@ public class Driver {
 
 
     public static void run(Button btn) {
+        // Everything but Play itself uses the game, which the simulation thread must leave alone
+        if (simulation != null && !btn.name.equals("Play")) {
+            simulation.pause();
+        }
+
         if (inArray(btn.name, optionNames)) {
 
             switch (btn.name) {
@@ -294,6 +451,9 @@ public class Driver {
                     current = Page.CONSTRUCTOR;
                     break;
                 case "Quit":
+                    if (!snapshotWriter.shutdown(QUIT_SAVE_TIMEOUT_MILLIS)) {
+                        System.err.println("Quit before every queued save had finished.");
+                    }
                     System.exit(0);
             }
 
@@ -310,16 +470,10 @@ public class Driver {
                 case "Create Game with Input File":
                     displayPage(Page.INPUT);
                     current = Page.INPUT;
-                    while (StdDraw.hasNextKeyTyped()) {
-                        StdDraw.nextKeyTyped();
-                    }
                     break;
                 case "Create Custom Game":
                     displayPage(Page.CREATE);
                     current = Page.CREATE;
-                    while (StdDraw.hasNextKeyTyped()) {
-                        StdDraw.nextKeyTyped();
-                    }
                     break;
             }
 
@@ -327,20 +481,37 @@ public class Driver {
 
             switch (btn.name) {
                 case "Open":
-                    methodFilename = inputFilename.text + ".txt";
+                    // Other formats are opened by typing the whole name, e.g. glider.rle
+                    methodExtension = ".txt";
+                    for (String extension : inputExtensions) {
+                        if (inputFilename.text.endsWith(extension)) {
+                            methodExtension = extension;
+                        }
+                    }
+                    methodFilename = inputFilename.text.endsWith(methodExtension) ? inputFilename.text : inputFilename.text + methodExtension;
                     File inputFile = new File(methodFilename);
                     if (inputFile.exists()) {
-                        inputError.text = "";
-                        inputFilename.text = "";
-                        game = new GameOfLife(methodFilename);
-                        initializeMethod(game);
-                        displayPage(Page.METHOD);
-                        current = Page.METHOD;
+                        try {
+                            if (methodExtension.equals(SnapshotStore.DATA_EXTENSION)) {
+                                String pattern = methodFilename.substring(0, methodFilename.lastIndexOf(methodExtension));
+                                game = openSnapshot(pattern, -1);
+                            } else {
+                                game = openGame(methodFilename);
+                            }
+                            inputError.text = "";
+                            inputFilename.text = "";
+                            initializeMethod(game);
+                            displayPage(Page.METHOD);
+                            current = Page.METHOD;
+                        } catch (NoSuchElementException | UncheckedIOException e) {
+                            inputError.text = "The file you input is not a valid grid.";
+                            displayPage(Page.INPUT);
+                        }
                     } else {
                         inputError.text = "The file you input does not exist.";
                         displayPage(Page.INPUT);
                     }
-                    methodFilename = methodFilename.substring(0, methodFilename.lastIndexOf(".txt"));
+                    methodFilename = methodFilename.substring(0, methodFilename.lastIndexOf(methodExtension));
                     break;
             }
 
@@ -350,21 +521,23 @@ public class Driver {
             switch (btn.name) {
                 case "-":
                     if (btn.y == 90 && activeBoard.rows > 3) {
-                        activeBoard.rows--;
+                        activeBoard.rows -= (activeBoard.rows > 20) ? 10 : 1;
                     } else if (btn.y == 80 && activeBoard.cols > 3) {
-                        activeBoard.cols--;
+                        activeBoard.cols -= (activeBoard.cols > 20) ? 10 : 1;
                     }
                     break;
                 case "+":
-                    if (btn.y == 90 && activeBoard.rows < 20) {
-                        activeBoard.rows++;
-                    } else if (btn.y == 80 && activeBoard.cols < 20) {
-                        activeBoard.cols++;
+                    // One at a time up to 20, then in tens
+                    if (btn.y == 90 && activeBoard.rows < MAX_CREATE_SIZE) {
+                        activeBoard.rows += (activeBoard.rows >= 20) ? 10 : 1;
+                    } else if (btn.y == 80 && activeBoard.cols < MAX_CREATE_SIZE) {
+                        activeBoard.cols += (activeBoard.cols >= 20) ? 10 : 1;
                     }
                     break;
 
                 case "Save and Create":
                     methodFilename = createFilename.text + ".txt";
+                    methodExtension = ".txt";
                     try {
                         File newInputFile = new File(methodFilename);
                         if (newInputFile.createNewFile()) {
@@ -384,7 +557,7 @@ public class Driver {
                             
                             createError.text = "";
                             createFilename.text = "";
-                            game = new GameOfLife(methodFilename);
+                            game = openGame(methodFilename);
                             initializeMethod(game);
                             displayPage(Page.METHOD);
                             current = Page.METHOD;
@@ -410,7 +583,6 @@ public class Driver {
             }
             activeBoard.board = newCells;
             displayPage(Page.CREATE);
-            StdDraw.pause(DELAY);
 
         } else if (inArray(btn.name, methodNames)) {
             
@@ -422,17 +594,13 @@ public class Driver {
                         activeBoard.changeColor(StdDraw.RED);
                         StdDraw.show();
                         
-                        while (true) {
-                            if (StdDraw.isMousePressed() && activeBoard.containsMouse()) {
-                                break;
-                            }
-                        }
+                        StdDraw.UserEvent click = waitForClick(activeBoard);
                         
-                        double mX = StdDraw.mouseX();
-                        double mY = StdDraw.mouseY();
+                        double mX = click.x;
+                        double mY = click.y;
                         double[] coords = activeBoard.getCellCM(mX, mY);
-                        int row = (int)Math.round((activeBoard.upperY - coords[0]) / activeBoard.incY);
-                        int col = (int)Math.round((coords[1] - activeBoard.lowerX) / activeBoard.incX);
+                        int row = activeBoard.rowAt(mY);
+                        int col = activeBoard.colAt(mX);
                         
                         methodText.text = (game.getCellState(row, col)) ? "The cell is ALIVE." : "The cell is DEAD.";
                         displayPage(Page.METHOD);
@@ -453,17 +621,13 @@ public class Driver {
                         activeBoard.changeColor(StdDraw.RED);
                         StdDraw.show();
 
-                        while (true) {
-                            if (StdDraw.isMousePressed() && activeBoard.containsMouse()) {
-                                break;
-                            }
-                        }
+                        StdDraw.UserEvent click = waitForClick(activeBoard);
 
-                        double mX = StdDraw.mouseX();
-                        double mY = StdDraw.mouseY();
+                        double mX = click.x;
+                        double mY = click.y;
                         double[] coords = activeBoard.getCellCM(mX, mY);
-                        int row = (int)Math.round((activeBoard.upperY - coords[0]) / activeBoard.incY);
-                        int col = (int)Math.round((coords[1] - activeBoard.lowerX) / activeBoard.incX);
+                        int row = activeBoard.rowAt(mY);
+                        int col = activeBoard.colAt(mX);
 
                         methodText.text = "The cell has " + game.numOfAliveNeighbors(row, col) + " alive neighbors.";
                         displayPage(Page.METHOD);
@@ -473,10 +637,15 @@ public class Driver {
                     break;
 
                 case "Next Generation":
+                    long start = System.nanoTime();
                     game.nextGeneration();
-                    methodText.text = "Next generation calculated.";
-                    displayPage(Page.METHOD);
-                    StdDraw.pause(DELAY);
+                    stats.recordStep(System.nanoTime() - start);
+                    if (methodText.text.equals("Next generation calculated.")) {
+                        refreshMethodBoard(game.getGrid());  // Only the cells changed since the last click
+                    } else {
+                        methodText.text = "Next generation calculated.";
+                        displayPage(Page.METHOD);
+                    }
                     break;
 
                 case "Next N Generations":
@@ -485,13 +654,10 @@ public class Driver {
                     methodText.text = "How many generations to compute?";
                     displayPage(Page.METHOD);
 
-                    while (StdDraw.hasNextKeyTyped()) {
-                        StdDraw.nextKeyTyped();
-                    }
-
                     while (true) {
-                        if (StdDraw.hasNextKeyTyped()) {
-                            int keystroke = (int)StdDraw.nextKeyTyped();
+                        StdDraw.UserEvent input = StdDraw.nextEvent();
+                        if (input.type == StdDraw.UserEvent.KEY_TYPED) {
+                            int keystroke = (int)input.key;
                             String steps = stepsText.text;
                             int len = steps.length();
                             if (48 <= keystroke && keystroke <= 57 && len < 9) {
@@ -503,7 +669,7 @@ public class Driver {
                             displayPage(Page.METHOD);
                         }
 
-                        if (StdDraw.isMousePressed() && methodSubmit.containsMouse()) {
+                        if (input.type == StdDraw.UserEvent.MOUSE_PRESSED && methodSubmit.contains(input.x, input.y)) {
                             try {
                                 n = Integer.parseInt(stepsText.text);
                                 if (n >= 0) {
@@ -526,54 +692,287 @@ public class Driver {
 
                 case "Communities":
                     methodText.text = "Number of Communities: " + game.numOfCommunities();
+                    // Keep coloring the board by community from now on, the buffer is reused every frame
+                    if (methodBoard.labels == null) {
+                        methodBoard.labels = new int[methodBoard.rows * methodBoard.cols];
+                    }
                     displayPage(Page.METHOD);
                     break;
                 
+                case "Play":
+                    if (simulation == null || simulation.getGame() != game) {
+                        if (simulation != null) {
+                            simulation.stop();
+                        }
+                        simulation = new SimulationThread(game, stats);
+                    }
+                    if (simulation.isPlaying()) {
+                        simulation.pause();
+                        methodText.text = "Paused at generation " + game.getGeneration() + ".";
+                    } else {
+                        simulation.setTargetRate(PLAY_RATES[playRate]);
+                        simulation.play();
+                        methodText.text = playingText();
+                    }
+                    displayPage(Page.METHOD);
+                    break;
+
                 case "Reset":
-                    game = (methodFilename.equals("default")) ? new GameOfLife() : new GameOfLife(methodFilename + ".txt");
+                    if (methodFilename.equals("default")) {
+                        game = new GameOfLife();
+                    } else if (methodExtension.equals(SnapshotStore.DATA_EXTENSION)) {
+                        game = openSnapshot(methodFilename, methodVersion);
+                    } else {
+                        game = openGame(methodFilename + methodExtension);
+                    }
                     initializeMethod(game);
                     displayPage(Page.METHOD);
-                    StdDraw.pause(DELAY);
                     break;
                 
                 case "Save Grid":
                     try {
-                        int version = getNextAvailableNumber(methodFilename);
-                        String savedFilename = methodFilename + "_saved" + version + ".txt";
-                        File newSave = new File(savedFilename);
-                        FileWriter inputWriter = new FileWriter(newSave);
-                        inputWriter.write(Integer.toString(activeBoard.cols) + "\n"); // cols
-                        inputWriter.write(Integer.toString(activeBoard.rows) + "\n"); // then rows
-                        int aliveCells = 0;
-                        for (boolean[] row : activeBoard.board) {
-                            for (boolean cell : row) {
-                                if (cell) {
-                                    aliveCells++;
-                                }
+                        // Every save of a pattern goes into its snapshot store, opened once per pattern.
+                        // A version is reopened by typing <pattern>.snapshots on the INPUT page.
+                        if (snapshotStore == null || !snapshotStore.getPattern().equals(methodFilename)) {
+                            if (snapshotStore != null) {
+                                snapshotWriter.closeLater(snapshotStore);
                             }
+                            snapshotStore = new SnapshotStore(methodFilename);
                         }
-                        inputWriter.write(Integer.toString(aliveCells) + "\n");
-    
-                        for (boolean[] row : activeBoard.board) {
-                            for (boolean cell : row) {
-                                String spacing = (cell) ? "   " : "  ";
-                                inputWriter.write(Boolean.toString(cell) + spacing);
-                            }
-                            inputWriter.write("\n");
-                        }
-                        inputWriter.close();
-                        methodText.text = "Grid saved as " + savedFilename;
+                        snapshotWriter.append(snapshotStore, game.getGrid(), game.getGeneration(), (name, error) -> {
+                            saveMessage = (error == null) ? "Grid saved as " + name : "Error occurred in saving state.";
+                            StdDraw.wakeUp();
+                        });
+                        methodText.text = "Saving grid to " + methodFilename + SnapshotStore.DATA_EXTENSION + "...";
                     } catch (IOException e) {
+                        snapshotStore = null;
                         methodText.text = "Error occurred in saving state.";
                     }
                     displayPage(Page.METHOD);
-                    StdDraw.pause(DELAY);
                     break;
             }
         }
     }
 
 
+    // Makes Play slower for [ and faster for ], returns false for other keys
+    public static boolean changePlayRate(char key) {
+        if (key == '[' && playRate > 0) {
+            playRate--;
+        } else if (key == ']' && playRate < PLAY_RATES.length - 1) {
+            playRate++;
+        } else {
+            return key == '[' || key == ']';
+        }
+        if (simulation != null && simulation.isPlaying()) {
+            simulation.setTargetRate(PLAY_RATES[playRate]);
+            methodText.text = playingText();
+        } else {
+            methodText.text = "Play speed: " + rateText() + ".";
+        }
+        return true;
+    }
+
+    public static String playingText() {
+        return "Playing at " + rateText() + ", [ ] for speed.";
+    }
+
+    public static String rateText() {
+        return (PLAY_RATES[playRate] == 0) ? "full speed" : PLAY_RATES[playRate] + " gens/s";
+    }
+
+
+    // Shows or hides the performance overlay for h, returns false for other keys
+    public static boolean toggleHud(char key) {
+        if (Character.toLowerCase(key) != 'h') {
+            return false;
+        }
+        showHud = !showHud;
+        if (showHud) {
+            // Rates are measured from now on. While playing the game belongs to the simulation thread.
+            boolean playing = simulation != null && simulation.isPlaying();
+            stats.sample(playing ? simulation.latest().generation : game.getGeneration());
+            nextHud = System.nanoTime() + HUD_INTERVAL_NANOS;
+            for (Text line : hudLines) {
+                line.text = "";
+            }
+        }
+        return true;
+    }
+
+    // Measures the rates since the last update and redraws the overlay with the new numbers
+    public static void updateHud() {
+        // While playing the game belongs to the simulation thread, its latest snapshot has the same numbers
+        boolean playing = simulation != null && simulation.isPlaying();
+        SimulationThread.Snapshot latest = playing ? simulation.latest() : null;
+        long generation = playing ? latest.generation : game.getGeneration();
+        int population = playing ? latest.population : game.getTotalAliveCells();
+        int births = playing ? latest.births : game.getBirths();
+        int deaths = playing ? latest.deaths : game.getDeaths();
+
+        stats.sample(generation);
+        double allocation = stats.getAllocationRate();
+        hudLines[0].text = String.format("%.1f gens/s  alloc ", stats.getGenerationRate())
+                + ((allocation < 0) ? "n/a" : String.format("%.1f MB/s", allocation / (1 << 20)));
+        hudLines[1].text = "step p50 " + duration(stats.stepPercentile(50)) + "  p99 " + duration(stats.stepPercentile(99));
+        hudLines[2].text = "pop " + population + "  +" + births + " -" + deaths;
+        hudLines[3].text = "render p50 " + duration(stats.renderPercentile(50)) + "  p99 " + duration(stats.renderPercentile(99));
+
+        // The strip right of the Quit button and above methodText
+        Color pen = StdDraw.getPenColor();
+        StdDraw.setPenColor(BACKGROUND_COLOR);
+        StdDraw.filledRectangle(61, 95.5, 38.5, 3);
+        StdDraw.setPenColor(pen);
+        drawHud();
+        StdDraw.showRegion(61, 95.5, 38.5, 3);
+    }
+
+    public static void drawHud() {
+        Font temp = StdDraw.getFont();
+        StdDraw.setFont(new Font("SansSerif", Font.PLAIN, 10));
+        for (Text line : hudLines) {
+            line.draw();
+        }
+        StdDraw.setFont(temp);
+    }
+
+    // Nanoseconds as a short readable duration
+    public static String duration(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + " ns";
+        } else if (nanos < 10_000_000) {
+            return String.format("%.1f us", nanos / 1e3);
+        }
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+
+
+    // Queues a cell of the CREATE board to be painted in the next batch
+    public static void queuePaint(int row, int col) {
+        if (paintCount == paintCells.length) {
+            paintCells = Arrays.copyOf(paintCells, 2 * paintCount);
+        }
+        paintCells[paintCount++] = row * createBoard.cols + col;
+    }
+
+    // Queues every cell on the line between two cells, so a fast drag leaves no gaps.
+    // The first cell was queued already.
+    public static void paintLine(int r0, int c0, int r1, int c1) {
+        int dr = Math.abs(r1 - r0);
+        int dc = Math.abs(c1 - c0);
+        int stepR = (r0 < r1) ? 1 : -1;
+        int stepC = (c0 < c1) ? 1 : -1;
+        int error = dc - dr;
+        while (r0 != r1 || c0 != c1) {
+            int twice = 2 * error;
+            if (twice > -dr) {
+                error -= dr;
+                c0 += stepC;
+            }
+            if (twice < dc) {
+                error += dc;
+                r0 += stepR;
+            }
+            queuePaint(r0, c0);
+        }
+    }
+
+    // Sets the queued cells and draws just the parts of the board that changed
+    public static void applyPaint() {
+        for (int i = 0; i < paintCount; i++) {
+            createBoard.board[paintCells[i] / createBoard.cols][paintCells[i] % createBoard.cols] = paintValue;
+        }
+        paintCount = 0;
+        createBoard.cellsChanged();
+        createBoard.drawChanges();
+    }
+
+
+    // Sleeps until the mouse is pressed on area, other input meanwhile is dropped
+    public static StdDraw.UserEvent waitForClick(Rectangle area) {
+        while (true) {
+            StdDraw.UserEvent event = StdDraw.nextEvent();
+            if (event.type == StdDraw.UserEvent.MOUSE_PRESSED && area.contains(event.x, event.y)) {
+                return event;
+            }
+        }
+    }
+
+
+    // Moves the view of board for a key: + and - zoom in and out around the cell under the
+    // mouse (or the middle of the view), w a s d pan by a quarter of the view, 0 shows it all.
+    // Returns false if the key does nothing.
+    public static boolean navigate(Board board, char key) {
+        int row = board.viewRow + board.viewRows / 2;
+        int col = board.viewCol + board.viewCols / 2;
+        if (board.containsMouse()) {
+            row = board.rowAt(StdDraw.mouseY());
+            col = board.colAt(StdDraw.mouseX());
+        }
+        switch (Character.toLowerCase(key)) {
+            case '+': case '=':
+                board.zoom(2, row, col);
+                return true;
+            case '-': case '_':
+                board.zoom(0.5, row, col);
+                return true;
+            case 'w':
+                board.pan(-Math.max(1, board.viewRows / 4), 0);
+                return true;
+            case 's':
+                board.pan(Math.max(1, board.viewRows / 4), 0);
+                return true;
+            case 'a':
+                board.pan(0, -Math.max(1, board.viewCols / 4));
+                return true;
+            case 'd':
+                board.pan(0, Math.max(1, board.viewCols / 4));
+                return true;
+            case '0':
+                board.resetView();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    // Shows grid on the METHOD page, drawing and pushing to the screen only the parts of the
+    // board whose cells changed since it was last shown
+    public static void refreshMethodBoard(boolean[][] grid) {
+        long start = System.nanoTime();
+        methodBoard.board = grid;
+        if (methodBoard.labels != null) {
+            frameLabeler.label(grid, null, methodBoard.labels);
+        }
+        methodBoard.drawChanges();
+        stats.recordRender(System.nanoTime() - start);
+    }
+
+
+    // Shows the newest generation the simulation thread has published. Generations computed
+    // since the last frame are skipped, and nothing is drawn if there is no new one yet.
+    public static void showLatestGeneration() {
+        SimulationThread.Snapshot latest = simulation.latest();
+        if (latest.generation == shownGeneration) {
+            return;
+        }
+        shownGeneration = latest.generation;
+        refreshMethodBoard(latest.grid);
+    }
+
+
+    // Frames per second of the screen, 60 if it can't be told
+    private static int refreshRate() {
+        try {
+            int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+            return (rate > 0) ? rate : 60;
+        } catch (HeadlessException e) {
+            return 60;
+        }
+    }
+
+
     // This method just initializes things in method w/ game object since that can't be done
     // right at the start when it doesn't exist yet, this is just to cut down on code
     public static void initializeMethod(GameOfLife game) {
@@ -581,43 +980,36 @@ public class Driver {
         methodBoard.board = grid;
         methodBoard.rows = grid.length;
         methodBoard.cols = grid[0].length;
+        methodBoard.labels = null;
         methodText.text = "Select an Option";
     }
 
 
-    // Get number to put at end of file for saving current state of board
-    public static int getNextAvailableNumber(String currentFilename) {
-        int num = -1;  // number to return for end of filename
-        File[] filesInDirectory = new File("./").listFiles();
+    // Opens version of pattern's snapshot store, the latest one if version is negative, and remembers it in methodVersion
+    public static GameOfLife openSnapshot(String pattern, int version) {
+        GameOfLife loaded = new GameOfLife();
+        try (SnapshotStore store = new SnapshotStore(pattern)) {
+            int opened = (version < 0) ? store.nextVersion() - 1 : version;
+            store.load(opened, loaded);
+            methodVersion = opened;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open " + pattern + SnapshotStore.DATA_EXTENSION, e);
+        }
+        return loaded;
+    }
 
-        for (File file : filesInDirectory) {
-            // Ensure file is a file, not a directory
-            if (file.isFile()) {
-                String filename = file.getName();
-                int indexOfExtension = filename.lastIndexOf(".");
-                String beginning = currentFilename + "_saved";
-                
-                // Following will throw error if file doesn't have extension
-                try {
-                    // Ensure file is txt file that contains filename_saved in it
-                    if (filename.substring(indexOfExtension).equals(".txt") && filename.contains(beginning)) {
-                        // Get number from file, so if current filename is "name_saved3.txt", this will get the "3"
-                        String currentNumber = filename.substring(filename.indexOf(beginning) + beginning.length(), indexOfExtension);
-                        
-                        try {
-                            int potentialNum = Integer.parseInt(currentNumber);
-                            if (potentialNum > num) {
-                                num = potentialNum;
-                            }
-                        } catch (NumberFormatException e) {
-                            continue;
-                        }
-                    }
-                } catch (IndexOutOfBoundsException e) {
-                    continue;
-                }
-            }
+
+    // Opens the game in file through patternCache
+    public static GameOfLife openGame(String file) {
+        try {
+            return patternCache.open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open " + file, e);
         }
-        return num + 1;
     }
-}
\ No newline at end of file
+
+    // Reads file when patternCache has no up to date copy of it
+    private static void readGame(String file, GameOfLife game) throws IOException {
+        GridReader.read(file, game);
+    }
+}
@@ -1,4 +1,6 @@
 package conwaygame;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 /**
  * Conway's Game of Life Class holds various methods that will
@@ -16,8 +18,19 @@ public class GameOfLife {
     private static final boolean ALIVE = true;
     private static final boolean  DEAD = false;
 
+    // The rules above in B/S form (B3/S23): bit n is set if a dead cell with n alive
+    // neighbors is born, bit 16 + n is set if an alive cell with n alive neighbors survives
+    public static final int CONWAY_RULE = (1 << 3) | (1 << (16 + 2)) | (1 << (16 + 3));
+
     private boolean[][] grid;    // The board has the current generation of cells
     private int totalAliveCells; // Total number of alive cells in the grid (board)
+    private long generation;     // Number of generations computed since the first one
+    private int births;          // Cells that became alive in the last generation computed
+    private int deaths;          // Cells that died in the last generation computed
+
+    private CommunityLabeler labeler; // Kept between calls so its buffers can be reused
+    private CommunityTracker tracker; // Not null while communities are tracked across generations
+    private GenerationJournal journal; // Not null while generations are being recorded
 
     /**
     * Default Constructor which creates a small 5x5 grid with five alive cells.
@@ -43,22 +56,23 @@ public class GameOfLife {
     */
     public GameOfLife (String file) {
         
-        StdIn.setFile(file);
-            
-        int r = StdIn.readInt();
-        int c = StdIn.readInt();
-            
-        grid = new boolean[r][c];
-
-        for(int i = 0; i < r; i++){
-            for(int j = 0; j < c; j++){
-                boolean stateOfCell = StdIn.readBoolean();
-                grid[i][j] = stateOfCell;
-                totalAliveCells++;
-            }
+        try{
+            GridReader.read(file, this);
+        } catch(IOException e){
+            throw new UncheckedIOException("Could not open " + file, e);
         }
     }
 
+    /**
+     * Replaces the grid, used by the grid readers to load straight into the game
+     * @param newGrid the new current generation
+     * @param aliveCells number of alive cells in newGrid
+     */
+    void setGrid (boolean[][] newGrid, int aliveCells) {
+        grid = newGrid;
+        totalAliveCells = aliveCells;
+    }
+
     /**
      * Returns grid
      * @return boolean[][] for current grid
@@ -67,6 +81,22 @@ public class GameOfLife {
         return grid;
     }
     
+    /**
+     * Returns the generation number of the current grid, 0 for the initial pattern
+     * @return long for the current generation
+     */
+    public long getGeneration () {
+        return generation;
+    }
+
+    /**
+     * Sets the generation number, used by the grid readers when a file stores one
+     * @param gen generation number of the current grid
+     */
+    void setGeneration (long gen) {
+        generation = gen;
+    }
+
     /**
      * Returns totalAliveCells
      * @return int for total number of alive cells in grid
@@ -75,6 +105,22 @@ public class GameOfLife {
         return totalAliveCells;
     }
 
+    /**
+     * Returns the number of cells that became alive in the last generation computed
+     * @return int for births, 0 if no generation has been computed yet
+     */
+    public int getBirths () {
+        return births;
+    }
+
+    /**
+     * Returns the number of cells that died in the last generation computed
+     * @return int for deaths, 0 if no generation has been computed yet
+     */
+    public int getDeaths () {
+        return deaths;
+    }
+
     /**
      * Returns the status of the cell at (row,col): ALIVE or DEAD
      * @param row row position of the cell
@@ -379,24 +425,62 @@ public class GameOfLife {
 
         for(int i = 0; i < grid.length; i++){
             for(int j = 0; j < grid[0].length; j++){
-                if((grid[i][j] == true) && (numOfAliveNeighbors(i, j) < 2)){ //Cell dies of loneliness
-                    theGrid[i][j] = false;
-                }
-                else if((grid[i][j] == true) && (numOfAliveNeighbors(i, j) > 3)){ //Cell dies to overpopulation
-                    theGrid[i][j] = false;
-                }
-                else if((grid[i][j] == false) && (numOfAliveNeighbors(i, j) == 3)){ //Cell becomes alive by reproduction
-                    theGrid[i][j] = true;
-                }
-                else{
-                    theGrid[i][j] = grid[i][j];
-                }
+                theGrid[i][j] = nextState(grid[i][j], numOfAliveNeighbors(i, j));
             }
         }
 
         return theGrid;
     }
 
+    /**
+     * Applies the rules to one cell: alive cells with 2-3 alive neighbors survive,
+     * dead cells with exactly 3 become alive, every other cell is dead in the next generation.
+     * 
+     * @param alive state of the cell in the current generation
+     * @param neighbors number of alive cells around it
+     * @return the state of the cell in the next generation
+     */
+    public static boolean nextState (boolean alive, int neighbors) {
+
+        return ((CONWAY_RULE >>> (alive ? 16 + neighbors : neighbors)) & 1) != 0;
+    }
+
+    /**
+     * Computes one row of the next generation from the row and the rows above and below it,
+     * so a board can be stepped without holding all of it. Columns wrap around like in
+     * computeNewGrid(); for the first and last rows, pass the rows from the other edge.
+     * 
+     * @param above the row above, in the current generation
+     * @param row the row being computed, in the current generation
+     * @param below the row below, in the current generation
+     * @param next receives the row in the next generation, must not be one of the other rows
+     * @return the number of alive cells in next
+     */
+    public static int computeRow (boolean[] above, boolean[] row, boolean[] below, boolean[] next) {
+
+        int cols = row.length;
+        int alive = 0;
+        for(int c = 0; c < cols; c++){
+            int left = (c == 0) ? cols - 1 : c - 1;
+            int right = (c == cols - 1) ? 0 : c + 1;
+            int neighbors = 0;
+            if(above[left]) neighbors++;
+            if(above[c]) neighbors++;
+            if(above[right]) neighbors++;
+            if(row[left]) neighbors++;
+            if(row[right]) neighbors++;
+            if(below[left]) neighbors++;
+            if(below[c]) neighbors++;
+            if(below[right]) neighbors++;
+
+            next[c] = nextState(row[c], neighbors);
+            if(next[c]){
+                alive++;
+            }
+        }
+        return alive;
+    }
+
     /**
      * Updates the current grid (the grid instance variable) with the grid denoting
      * the next generation of cells computed by computeNewGrid().
@@ -405,7 +489,15 @@ public class GameOfLife {
      */
     public void nextGeneration () {
 
-        grid = computeNewGrid();
+        step();
+        generation++;
+
+        if(tracker != null){
+            tracker.update(grid, generation);
+        }
+        if(journal != null){
+            record();
+        }
     }
 
     /**
@@ -415,10 +507,35 @@ public class GameOfLife {
     public void nextGeneration (int n) {
 
         for(int i = 0; i < n; i++){
-            grid = computeNewGrid();
+            nextGeneration();
         }
     }
 
+    // Same as grid = computeNewGrid(), also counting births, deaths and totalAliveCells
+    private void step() {
+
+        boolean[][] theGrid = new boolean[grid.length][grid[0].length];
+        int born = 0;
+        int died = 0;
+
+        for(int i = 0; i < grid.length; i++){
+            for(int j = 0; j < grid[0].length; j++){
+                boolean alive = nextState(grid[i][j], numOfAliveNeighbors(i, j));
+                theGrid[i][j] = alive;
+                if(alive && !grid[i][j]){
+                    born++;
+                } else if(!alive && grid[i][j]){
+                    died++;
+                }
+            }
+        }
+
+        grid = theGrid;
+        births = born;
+        deaths = died;
+        totalAliveCells += born - died;
+    }
+
     /**
      * Determines the number of separate cell communities in the grid
      * @return the number of communities in the grid, communities can be formed from edges
@@ -687,4 +804,107 @@ public class GameOfLife {
 
         return comms.size();
     }
+
+    /**
+     * Computes the size, bounding box, centroid and a representative cell of every
+     * community in the grid in a single labeling pass. Bounding boxes and centroids
+     * account for communities that wrap around the edges of the board.
+     * 
+     * @param stats object to write the results into, reused if not null so calling this
+     * every generation does not allocate
+     * @return stats (or a new CommunityStats if stats was null) holding one entry per community
+     */
+    public CommunityStats communityStats(CommunityStats stats) {
+
+        if(stats == null){
+            stats = new CommunityStats();
+        }
+        if(labeler == null){
+            labeler = new CommunityLabeler();
+        }
+
+        labeler.label(grid, stats);
+        return stats;
+    }
+
+    /**
+     * Writes the community label of every cell into labels, indexed by row * cols + col.
+     * Labels are dense, from 0 to the number of communities - 1, and dead cells get -1.
+     * 
+     * @param labels buffer with room for at least rows * cols labels, reused by the caller
+     * between calls so labeling every frame does not allocate
+     * @return the number of communities in the grid
+     */
+    public int communityLabels(int[] labels) {
+
+        if(labeler == null){
+            labeler = new CommunityLabeler();
+        }
+
+        return labeler.label(grid, null, labels);
+    }
+
+    /**
+     * Starts giving communities persistent ids that survive across calls to nextGeneration().
+     * The current grid is labeled right away and every community in it is reported as born.
+     * 
+     * @param listener receives birth, death, merge and split events, can be null if only the ids are needed
+     */
+    public void trackCommunities(CommunityListener listener) {
+
+        tracker = new CommunityTracker(listener);
+        tracker.update(grid, generation);
+    }
+
+    /**
+     * Stops tracking communities, nextGeneration() no longer labels each generation
+     */
+    public void stopTrackingCommunities() {
+
+        tracker = null;
+    }
+
+    /**
+     * Returns the persistent id of the community the cell at (row,col) belongs to
+     * @param row row position of the cell
+     * @param col column position of the cell
+     * @return the id, or -1 if the cell is dead or communities are not being tracked
+     */
+    public int getCommunityId(int row, int col) {
+
+        if(tracker == null){
+            return -1;
+        }
+        return tracker.getId(row, col);
+    }
+
+    /**
+     * Starts recording every generation into journal, beginning with the current one.
+     * The journal is not closed by this class.
+     * 
+     * @param journal the journal generations are appended to, sized like the grid
+     * @throws UncheckedIOException if the journal cannot be written, here or in nextGeneration()
+     */
+    public void recordGenerations(GenerationJournal journal) {
+
+        this.journal = journal;
+        record();
+    }
+
+    /**
+     * Stops recording generations, nextGeneration() no longer appends to the journal
+     */
+    public void stopRecording() {
+
+        journal = null;
+    }
+
+    private void record() {
+
+        try {
+            journal.append(grid, generation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,456 @@
+package conwaygame;
+/*
+ * Records every generation of a run in one append-only file, so any of them can be replayed later.
+ *
+ * Layout (all numbers little-endian):
+ *   header   "GOLJ", version int, rows int, cols int, keyframe interval int, 12 reserved bytes
+ *   records  type byte, generation long, payload length int, payload
+ *            'K' keyframe: the words of the PackedGrid, like a binary grid payload
+ *            'D' delta: the words that differ from the previous record, each one as a
+ *                varint gap in word index since the previous changed word, then the XOR
+ *                of the two words as a long
+ *   index    "GIDX", then (generation long, offset long) for every keyframe
+ *   trailer  index offset long, keyframe count int, "GJIX"
+ *
+ * A keyframe is written every keyframe interval records, when the generation number goes
+ * backwards, and whenever the delta would be bigger than the keyframe. Generations do not have
+ * to be consecutive, a run can be recorded every n generations. To read generation g, seek to
+ * the last keyframe at or before g and apply the deltas after it.
+ *
+ * Records are collected in a large buffer and written sequentially when it fills up. The
+ * index is written by close(); if a run is cut short, readers rebuild it by walking the records.
+ * Journals written to a channel instead of a file, such as a pipe, have no index, so they use
+ * the same small amount of memory however long they run.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+public class GenerationJournal implements Closeable {
+
+    public static final String MAGIC = "GOLJ";
+    public static final String EXTENSION = ".golj";
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+    public static final int RECORD_HEADER_BYTES = 13;
+    public static final int TRAILER_BYTES = 16;
+    private static final String INDEX_MAGIC = "GIDX";
+    private static final String TRAILER_MAGIC = "GJIX";
+    private static final int BATCH_BYTES = 1 << 20;
+
+    /**
+     * When written data is forced to the disk
+     */
+    public enum SyncPolicy {
+        NEVER,        // Leave it to the operating system
+        ON_CLOSE,     // Once, after the index is written
+        EVERY_BATCH   // After every batch of records, so a crash loses at most one batch
+    }
+
+    private final WritableByteChannel channel;
+    private final SyncPolicy sync;
+    private final boolean indexed;
+    private final int rows;
+    private final int cols;
+    private final int keyframeInterval;
+    private final ByteBuffer batch = ByteBuffer.allocate(BATCH_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer delta;        // Scratch space a delta is encoded into before it is batched
+    private long position;           // File position the batch starts at
+
+    private PackedGrid previous;     // Last generation appended, the base of the next delta
+    private PackedGrid current;
+    private long lastGeneration = Long.MIN_VALUE;
+    private long sinceKeyframe;
+
+    // Sparse index of keyframes, only kept if indexed
+    private long[] keyGenerations = new long[64];
+    private long[] keyOffsets = new long[64];
+    private int keyframes;
+
+    /**
+     * Creates a journal, replacing file if it exists
+     * @param file name of the journal file
+     * @param rows number of rows of the boards that will be appended
+     * @param cols number of columns of the boards that will be appended
+     * @param keyframeInterval a keyframe is written at least every this many records
+     * @param sync when written data is forced to the disk
+     */
+    public GenerationJournal(String file, int rows, int cols, int keyframeInterval, SyncPolicy sync) throws IOException {
+        this(FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), rows, cols, keyframeInterval, sync, true);
+    }
+
+    /**
+     * Creates a journal without an index that is streamed to channel, such as standard output.
+     * Writes block while the channel is not ready, so a slow reader slows the writer down.
+     * @param channel where records are written, closed by close()
+     * @param rows number of rows of the boards that will be appended
+     * @param cols number of columns of the boards that will be appended
+     * @param keyframeInterval a keyframe is written at least every this many records
+     */
+    public GenerationJournal(WritableByteChannel channel, int rows, int cols, int keyframeInterval) {
+        this(channel, rows, cols, keyframeInterval, SyncPolicy.NEVER, false);
+    }
+
+    private GenerationJournal(WritableByteChannel channel, int rows, int cols, int keyframeInterval, SyncPolicy sync, boolean indexed) {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("keyframe interval must be positive");
+        }
+        this.channel = channel;
+        this.rows = rows;
+        this.cols = cols;
+        this.keyframeInterval = keyframeInterval;
+        this.sync = sync;
+        this.indexed = indexed;
+        previous = new PackedGrid(rows, cols);
+        current = new PackedGrid(rows, cols);
+
+        putMagic(batch, MAGIC);
+        batch.putInt(VERSION);
+        batch.putInt(rows);
+        batch.putInt(cols);
+        batch.putInt(keyframeInterval);
+        batch.put(new byte[12]);
+    }
+
+    /**
+     * Appends a generation
+     * @param grid the board, which must be the size the journal was created with
+     * @param generation generation number of grid
+     */
+    public void append(boolean[][] grid, long generation) throws IOException {
+        if (grid.length != rows || grid[0].length != cols) {
+            throw new IllegalArgumentException("journal holds " + rows + "x" + cols + " boards, got " + grid.length + "x" + grid[0].length);
+        }
+        current.packFrom(grid);
+
+        // The first record is always a keyframe, readers start from one
+        boolean keyframe = lastGeneration == Long.MIN_VALUE || generation <= lastGeneration
+                || sinceKeyframe + 1 >= keyframeInterval;
+        if (!keyframe) {
+            keyframe = !encodeDelta();
+        }
+
+        int words = rows * current.wordsPerRow;
+        long offset = position + batch.position();
+        if (keyframe) {
+            reserve(RECORD_HEADER_BYTES + 8 * words);
+            batch.put((byte)'K');
+            batch.putLong(generation);
+            batch.putInt(8 * words);
+            putWords(current.words, words);
+            if (indexed) {
+                addKeyframe(generation, offset);
+            }
+            sinceKeyframe = 0;
+        } else {
+            delta.flip();
+            reserve(RECORD_HEADER_BYTES + delta.remaining());
+            batch.put((byte)'D');
+            batch.putLong(generation);
+            batch.putInt(delta.remaining());
+            putBytes(delta);
+            sinceKeyframe++;
+        }
+
+        PackedGrid tmp = previous;
+        previous = current;
+        current = tmp;
+        lastGeneration = generation;
+    }
+
+    /**
+     * Writes whatever is batched
+     */
+    public void flush() throws IOException {
+        writeBatch();
+    }
+
+    /**
+     * Writes the batch and the keyframe index, then closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        if (!indexed) {
+            try {
+                writeBatch();
+            } finally {
+                channel.close();
+            }
+            return;
+        }
+        try {
+            long indexOffset = position + batch.position();
+            reserve(4);
+            putMagic(batch, INDEX_MAGIC);
+            for (int i = 0; i < keyframes; i++) {
+                reserve(16);
+                batch.putLong(keyGenerations[i]);
+                batch.putLong(keyOffsets[i]);
+            }
+            reserve(TRAILER_BYTES);
+            batch.putLong(indexOffset);
+            batch.putInt(keyframes);
+            putMagic(batch, TRAILER_MAGIC);
+            writeBatch();
+            if (sync != SyncPolicy.NEVER) {
+                ((FileChannel)channel).force(false);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reconstructs one generation of a journal into game, replacing its grid and generation
+     * @param file name of the journal file
+     * @param generation the generation to load
+     * @param game the game whose grid is replaced
+     * @throws NoSuchElementException if the journal does not hold that generation
+     */
+    public static void load(String file, long generation, GameOfLife game) throws IOException {
+        try (FileChannel in = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            ByteBuffer header = readAt(in, 0, HEADER_BYTES);
+            checkMagic(header, MAGIC, "not a generation journal");
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new InputMismatchException("unsupported journal version " + version);
+            }
+            int rows = header.getInt();
+            int cols = header.getInt();
+
+            long[][] index = readIndex(in);
+            int k = Arrays.binarySearch(index[0], generation);
+            if (k < 0) {
+                k = -k - 2;  // Last keyframe before generation
+            }
+            if (k < 0) {
+                throw new NoSuchElementException(file + " does not hold generation " + generation);
+            }
+
+            PackedGrid grid = new PackedGrid(rows, cols);
+            long offset = index[1][k];
+            boolean first = true;
+            while (true) {
+                if (offset + RECORD_HEADER_BYTES > in.size()) {
+                    throw new NoSuchElementException(file + " does not hold generation " + generation);
+                }
+                ByteBuffer recordHeader = readAt(in, offset, RECORD_HEADER_BYTES);
+                byte type = recordHeader.get();
+                long recordGeneration = recordHeader.getLong();
+                int length = recordHeader.getInt();
+                if ((type != 'K' && type != 'D') || recordGeneration > generation || (!first && type == 'K')) {
+                    throw new NoSuchElementException(file + " does not hold generation " + generation);
+                }
+
+                ByteBuffer payload = readAt(in, offset + RECORD_HEADER_BYTES, length);
+                if (type == 'K') {
+                    payload.asLongBuffer().get(grid.words, 0, length / 8);
+                } else {
+                    applyDelta(payload, grid.words);
+                }
+                if (recordGeneration == generation) {
+                    break;
+                }
+                offset += RECORD_HEADER_BYTES + length;
+                first = false;
+            }
+
+            boolean[][] cells = new boolean[rows][cols];
+            game.setGrid(cells, grid.unpackInto(cells));
+            game.setGeneration(generation);
+        }
+    }
+
+    // Encodes current XOR previous into delta, returns false if a keyframe would be smaller
+    private boolean encodeDelta() {
+        int words = rows * current.wordsPerRow;
+        if (delta == null) {
+            delta = ByteBuffer.allocate(8 * words).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        delta.clear();
+        int last = -1;
+        for (int i = 0; i < words; i++) {
+            long diff = current.words[i] ^ previous.words[i];
+            if (diff != 0) {
+                if (delta.remaining() < 15) {
+                    return false;
+                }
+                putVarint(delta, i - last);
+                delta.putLong(diff);
+                last = i;
+            }
+        }
+        return true;
+    }
+
+    private static void applyDelta(ByteBuffer payload, long[] words) {
+        int i = -1;
+        while (payload.hasRemaining()) {
+            i += getVarint(payload);
+            words[i] ^= payload.getLong();
+        }
+    }
+
+    // Reads the index written by close(), or rebuilds it by walking the records
+    private static long[][] readIndex(FileChannel in) throws IOException {
+        long size = in.size();
+        if (size >= HEADER_BYTES + TRAILER_BYTES) {
+            ByteBuffer trailer = readAt(in, size - TRAILER_BYTES, TRAILER_BYTES);
+            long indexOffset = trailer.getLong();
+            int count = trailer.getInt();
+            if (matches(trailer, TRAILER_MAGIC)) {
+                ByteBuffer index = readAt(in, indexOffset + 4, 16L * count);
+                long[][] result = new long[2][count];
+                for (int i = 0; i < count; i++) {
+                    result[0][i] = index.getLong();
+                    result[1][i] = index.getLong();
+                }
+                return result;
+            }
+        }
+
+        long[] generations = new long[64];
+        long[] offsets = new long[64];
+        int count = 0;
+        long offset = HEADER_BYTES;
+        while (offset + RECORD_HEADER_BYTES <= size) {
+            ByteBuffer recordHeader = readAt(in, offset, RECORD_HEADER_BYTES);
+            byte type = recordHeader.get();
+            long generation = recordHeader.getLong();
+            int length = recordHeader.getInt();
+            if ((type != 'K' && type != 'D') || offset + RECORD_HEADER_BYTES + length > size) {
+                break;  // Index, or a record cut short
+            }
+            if (type == 'K') {
+                if (count == generations.length) {
+                    generations = Arrays.copyOf(generations, 2 * count);
+                    offsets = Arrays.copyOf(offsets, 2 * count);
+                }
+                generations[count] = generation;
+                offsets[count++] = offset;
+            }
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        return new long[][] {Arrays.copyOf(generations, count), Arrays.copyOf(offsets, count)};
+    }
+
+    private void addKeyframe(long generation, long offset) {
+        if (keyframes == keyGenerations.length) {
+            keyGenerations = Arrays.copyOf(keyGenerations, 2 * keyframes);
+            keyOffsets = Arrays.copyOf(keyOffsets, 2 * keyframes);
+        }
+        // A run that goes back in generations replaces the index entries past that point
+        while (keyframes > 0 && keyGenerations[keyframes - 1] >= generation) {
+            keyframes--;
+        }
+        keyGenerations[keyframes] = generation;
+        keyOffsets[keyframes++] = offset;
+    }
+
+    private void putWords(long[] words, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (batch.remaining() < 8) {
+                writeBatch();
+            }
+            batch.putLong(words[i]);
+        }
+    }
+
+    // Copies what is left of src into the batch, writing the batch out whenever it fills up
+    private void putBytes(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            if (!batch.hasRemaining()) {
+                writeBatch();
+            }
+            int n = Math.min(src.remaining(), batch.remaining());
+            ByteBuffer slice = src.duplicate();
+            slice.limit(slice.position() + n);
+            batch.put(slice);
+            src.position(src.position() + n);
+        }
+    }
+
+    // Makes room for n bytes in the batch, writing it out if needed. Records bigger than the
+    // batch only get their header reserved, putWords() and putBytes() write out as they go.
+    private void reserve(int n) throws IOException {
+        if (batch.remaining() < Math.min(n, RECORD_HEADER_BYTES + 8 * 1024)) {
+            writeBatch();
+        }
+        if (batch.remaining() < n && n <= batch.capacity()) {
+            writeBatch();
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            position += channel.write(batch);
+        }
+        batch.clear();
+        if (sync == SyncPolicy.EVERY_BATCH) {
+            ((FileChannel)channel).force(false);
+        }
+    }
+
+    private static ByteBuffer readAt(FileChannel in, long offset, long length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int)length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (in.read(buf, offset + buf.position()) < 0) {
+                throw new InputMismatchException("journal ends early at byte " + (offset + buf.position()));
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private static void putMagic(ByteBuffer buf, String magic) {
+        for (int i = 0; i < magic.length(); i++) {
+            buf.put((byte)magic.charAt(i));
+        }
+    }
+
+    private static boolean matches(ByteBuffer buf, String magic) {
+        for (int i = 0; i < magic.length(); i++) {
+            if (buf.get() != (byte)magic.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkMagic(ByteBuffer buf, String magic, String message) {
+        if (!matches(buf, magic)) {
+            throw new InputMismatchException(message);
+        }
+    }
+
+    private static void putVarint(ByteBuffer buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte)value);
+    }
+
+    private static int getVarint(ByteBuffer buf) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buf.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new InputMismatchException("journal delta holds a varint longer than 32 bits");
+    }
+}
@@ -0,0 +1,407 @@
+package conwaygame;
+/*
+ * Loads grid files into a GameOfLife.
+ *
+ * The text format is the one used by the grid*.txt files and the CREATE page:
+ * the number of rows, the number of columns, then rows lines of cols true/false (or 1/0)
+ * tokens. Blank lines are skipped, but a line with more or fewer than cols cells, or anything
+ * after the last row, is rejected with its line number. Cells are parsed by ChannelInput
+ * straight into the game's boolean[][].
+ *
+ * Text files of PARALLEL_MIN_BYTES or more are split into chunks at line breaks and the
+ * chunks are parsed on all cores (see readTextParallel).
+ *
+ * Other formats are picked by their first bytes, whatever the file extension: files starting
+ * with BinaryGridFormat.MAGIC are binary grids, files starting with CellListFormat.MAGIC or
+ * a #Life 1.06 line are cell lists, and files starting with any other # comment or an
+ * x = header are RLE patterns.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class GridReader {
+
+    public static final long PARALLEL_MIN_BYTES = 16L << 20;
+    private static final long MIN_CHUNK_BYTES = 4L << 20;
+    private static final long MAX_CHUNK_BYTES = 256L << 20;  // Keeps each chunk's mapping and bitset small
+
+    /**
+     * Reads file into game, replacing its grid
+     * @param file name of the grid file
+     * @param game the game whose grid is replaced
+     * @throws IOException if the file cannot be read
+     * @throws InputMismatchException if the file is not a valid grid
+     */
+    public static void read(String file, GameOfLife game) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(BinaryGridFormat.MAGIC.length());
+            while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+                // positional reads, the channel stays at 0 for the text reader
+            }
+            if (isMagic(magic, BinaryGridFormat.MAGIC)) {
+                BinaryGridFormat.read(channel, game);
+            } else if (channel.size() >= PARALLEL_MIN_BYTES && magic.position() > 0
+                    && magic.get(0) >= '0' && magic.get(0) <= '9') {
+                readTextParallel(channel, game);  // Only text grids start with a digit
+            } else {
+                read(new ChannelInput(channel), game);
+            }
+        }
+    }
+
+    /**
+     * Reads a grid in any supported format from in into game, replacing its grid
+     * @param in input positioned at the start of the grid
+     * @param game the game whose grid is replaced
+     */
+    public static void read(ChannelInput in, GameOfLife game) throws IOException {
+        if (in.startsWith(BinaryGridFormat.MAGIC)) {
+            BinaryGridFormat.read(in, game);
+        } else if (in.startsWith(CellListFormat.MAGIC)) {
+            CellListFormat.readBinary(in, game);
+        } else if (in.skipWhitespace() && in.startsWith(CellListFormat.LIFE_HEADER)) {
+            CellListFormat.readLife(in, game);
+        } else if (RleFormat.detect(in)) {
+            RleFormat.read(in, game);
+        } else {
+            readText(in, game);
+        }
+    }
+
+    /**
+     * Reads a text grid from in into game, replacing its grid
+     * @param in input positioned at the row count, at the start of a line
+     * @param game the game whose grid is replaced
+     * @throws InputMismatchException if the header, a token or the length of a line is invalid
+     * @throws NoSuchElementException if there are fewer than rows lines of cells
+     */
+    public static void readText(ChannelInput in, GameOfLife game) throws IOException {
+        long line = 1 + skipLines(in);
+        int rows = in.readInt();
+        line += skipLines(in);
+        int cols = in.readInt();
+        if (rows <= 0 || cols <= 0) {
+            throw new InputMismatchException("grid must have at least one row and column, got " + rows + "x" + cols);
+        }
+
+        boolean[][] grid = new boolean[rows][cols];
+        int population = 0;
+        for (int i = 0; i < rows; i++) {
+            line += skipLines(in);
+            boolean[] row = grid[i];
+            for (int j = 0; j < cols; j++) {
+                int next = in.skipSpaces();
+                if (next == -1 && j == 0) {
+                    throw new NoSuchElementException("grid has " + i + " of its " + rows + " rows");
+                }
+                if (next == -1 || next == '\n') {
+                    throw lineLength(line, j, cols);
+                }
+                if (in.readBoolean()) {
+                    row[j] = true;
+                    population++;
+                }
+            }
+            int extra = 0;
+            while (in.skipSpaces() > '\n') {
+                in.readBoolean();
+                extra++;
+            }
+            if (extra > 0) {
+                throw lineLength(line, cols + extra, cols);
+            }
+        }
+        line += skipLines(in);
+        if (in.skipWhitespace()) {
+            throw new InputMismatchException("line " + line + " is past the last of the " + rows + " rows");
+        }
+        game.setGrid(grid, population);
+    }
+
+    // Skips whitespace up to the next token, returns how many line breaks were skipped
+    private static int skipLines(ChannelInput in) throws IOException {
+        int lines = 0;
+        while (in.skipSpaces() == '\n') {
+            in.read();
+            lines++;
+        }
+        return lines;
+    }
+
+    private static InputMismatchException lineLength(long line, int cells, int cols) {
+        return new InputMismatchException("line " + line + " has " + cells + " cells, expected " + cols);
+    }
+
+    /**
+     * Reads a text grid from channel into game using every core, replacing its grid.
+     *
+     * The cells after the header are split into chunks that end at line breaks, so no token
+     * is cut in two. Each chunk is parsed on its own thread into a bitset of its tokens,
+     * which needs only one pass over the file because a chunk does not have to know where
+     * in the grid it starts. Once every chunk is parsed, the token counts give each chunk's
+     * first cell and the chunks' alive cells are copied into the grid, again in parallel.
+     * As with readText(), every line that isn't blank must hold exactly cols tokens, and there
+     * must be exactly rows such lines.
+     *
+     * @param channel the grid file, positioned anywhere
+     * @param game the game whose grid is replaced
+     * @throws InputMismatchException if the header, a token or the length of a line is invalid
+     * @throws NoSuchElementException if there are fewer than rows lines of cells
+     */
+    public static void readTextParallel(FileChannel channel, GameOfLife game) throws IOException {
+        channel.position(0);
+        ChannelInput in = new ChannelInput(channel);
+        int rows = in.readInt();
+        int cols = in.readInt();
+        if (rows <= 0 || cols <= 0) {
+            throw new InputMismatchException("grid must have at least one row and column, got " + rows + "x" + cols);
+        }
+        long cells = (long)rows * cols;
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        long start = in.position();
+        long size = channel.size();
+        long chunkBytes = Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, (size - start) / (4L * threads)));
+        ArrayList<Long> bounds = new ArrayList<Long>();
+        bounds.add(start);
+        for (long next = start + chunkBytes; next < size; next = bounds.get(bounds.size() - 1) + chunkBytes) {
+            long end = nextLine(channel, next);
+            if (end >= size) {
+                break;
+            }
+            bounds.add(end);
+        }
+        bounds.add(size);
+
+        boolean[][] grid = new boolean[rows][cols];
+        int chunks = bounds.size() - 1;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, chunks), r -> {
+            Thread t = new Thread(r, "grid-reader");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            ArrayList<Future<TextChunk>> parsing = new ArrayList<Future<TextChunk>>();
+            for (int i = 0; i < chunks; i++) {
+                long from = bounds.get(i);
+                long to = bounds.get(i + 1);
+                parsing.add(executor.submit(() -> TextChunk.parse(channel, from, to, cols)));
+            }
+
+            ArrayList<Future<Integer>> copying = new ArrayList<Future<Integer>>();
+            long firstCell = 0;
+            long firstLine = lineAt(channel, start);
+            for (Future<TextChunk> future : parsing) {
+                TextChunk chunk = join(future);
+                if (chunk.badLine >= 0) {
+                    throw lineLength(firstLine + chunk.badLine, chunk.badTokens, cols);
+                }
+                firstLine += chunk.lines;
+                long first = firstCell;
+                copying.add(executor.submit(() -> chunk.copyInto(grid, first, cells)));
+                firstCell += chunk.tokens;
+            }
+            if (firstCell < cells) {
+                throw new NoSuchElementException("grid has " + (firstCell / cols) + " of its " + rows + " rows");
+            }
+            if (firstCell > cells) {
+                throw new InputMismatchException("grid has " + (firstCell / cols) + " rows, expected " + rows);
+            }
+
+            int population = 0;
+            for (Future<Integer> future : copying) {
+                population += join(future);
+            }
+            game.setGrid(grid, population);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The tokens of one chunk of a text grid, bit i is set if token i is alive
+     */
+    private static class TextChunk {
+        long[] alive;
+        int tokens;
+        int lines;         // Line breaks in the chunk
+        int badLine = -1;  // Line breaks before the first line without cols tokens, parsing stops there
+        int badTokens;     // Tokens on that line
+
+        static TextChunk parse(FileChannel channel, long from, long to, int cols) throws IOException {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            TextChunk chunk = new TextChunk();
+            chunk.alive = new long[(int)((to - from + 1) / 2 / 64) + 1];  // A token and its separator take 2 bytes or more
+
+            int n = buf.limit();
+            int i = 0;
+            int lineTokens = 0;
+            while (true) {
+                while (i < n && (buf.get(i) & 0xFF) <= ' ') {
+                    if (buf.get(i) == '\n') {
+                        if (lineTokens != 0 && lineTokens != cols) {
+                            return chunk.bad(lineTokens);
+                        }
+                        chunk.lines++;
+                        lineTokens = 0;
+                    }
+                    i++;
+                }
+                if (i == n) {
+                    return (lineTokens != 0 && lineTokens != cols) ? chunk.bad(lineTokens) : chunk;
+                }
+                int tokenStart = i;
+                boolean value;
+                switch (buf.get(i++)) {
+                    case '1':
+                        value = true;
+                        break;
+                    case '0':
+                        value = false;
+                        break;
+                    case 't': case 'T':
+                        value = true;
+                        i = expect(buf, i, "rue", from + tokenStart);
+                        break;
+                    case 'f': case 'F':
+                        value = false;
+                        i = expect(buf, i, "alse", from + tokenStart);
+                        break;
+                    default:
+                        throw mismatch(from + tokenStart);
+                }
+                if (i < n && (buf.get(i) & 0xFF) > ' ') {
+                    throw mismatch(from + tokenStart);
+                }
+                if (value) {
+                    chunk.alive[chunk.tokens >>> 6] |= 1L << (chunk.tokens & 63);
+                }
+                chunk.tokens++;
+                lineTokens++;
+            }
+        }
+
+        // Marks the current line as the bad one
+        private TextChunk bad(int lineTokens) {
+            badLine = lines;
+            badTokens = lineTokens;
+            return this;
+        }
+
+        // Sets the alive cells of this chunk, whose first token is cell first. Tokens past the
+        // last cell are left out, the caller rejects the grid. Returns how many cells were set.
+        int copyInto(boolean[][] grid, long first, long cells) {
+            int cols = grid[0].length;
+            int population = 0;
+            int words = (tokens + 63) >>> 6;
+            for (int w = 0; w < words; w++) {
+                long bits = alive[w];
+                while (bits != 0) {
+                    long cell = first + (w << 6) + Long.numberOfTrailingZeros(bits);
+                    if (cell >= cells) {
+                        return population;
+                    }
+                    grid[(int)(cell / cols)][(int)(cell % cols)] = true;
+                    population++;
+                    bits &= bits - 1;
+                }
+            }
+            return population;
+        }
+
+        // Matches the rest of a true/false token ignoring case, returns the index after it
+        private static int expect(ByteBuffer buf, int i, String rest, long start) {
+            for (int k = 0; k < rest.length(); k++, i++) {
+                if (i == buf.limit() || (buf.get(i) | 0x20) != rest.charAt(k)) {
+                    throw mismatch(start);
+                }
+            }
+            return i;
+        }
+
+        private static InputMismatchException mismatch(long start) {
+            return new InputMismatchException("attempts to read a 'boolean' value, but the token at byte " + start + " is not one");
+        }
+    }
+
+    // Returns the line number, counting from 1, of the line holding position
+    private static long lineAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        long line = 1;
+        for (long at = 0; at < position; ) {
+            buf.clear();
+            buf.limit((int)Math.min(buf.capacity(), position - at));
+            int read = channel.read(buf, at);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buf.get(i) == '\n') {
+                    line++;
+                }
+            }
+            at += read;
+        }
+        return line;
+    }
+
+    // Returns the position just after the first line break at or after position, or the file size
+    private static long nextLine(FileChannel channel, long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        while (true) {
+            buf.clear();
+            int read = channel.read(buf, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buf.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    // Waits for a chunk, rethrowing what went wrong on its thread
+    private static <T> T join(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading grid", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static boolean isMagic(ByteBuffer buf, String magic) {
+        if (buf.position() < magic.length()) {
+            return false;
+        }
+        for (int i = 0; i < magic.length(); i++) {
+            if (buf.get(i) != (byte)magic.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,143 @@
+package conwaygame;
+/*
+ * Saves grids to files.
+ *
+ * Text output matches what the CREATE page writes: rows, cols, then one line per row of
+ * "true   " / "false  " tokens, which GridReader and the GameOfLife(String) constructor read back.
+ * Files ending in BINARY_EXTENSION are written in the binary format instead, files ending
+ * in RleFormat.EXTENSION as RLE patterns, and files ending in CellListFormat.LIFE_EXTENSION
+ * or CellListFormat.BINARY_EXTENSION as cell lists.
+ */
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class GridWriter {
+
+    public static final String BINARY_EXTENSION = ".golb";
+
+    // Both tokens are 7 bytes, so every row of a text grid is 7 * cols + 1 bytes long
+    private static final byte[] ALIVE_TOKEN = "true   ".getBytes();
+    private static final byte[] DEAD_TOKEN = "false  ".getBytes();
+    public static final int TOKEN_BYTES = 7;
+
+    /**
+     * Writes the game's grid to file, picking the format from the file extension
+     * @param file name of the file, replaced if it exists
+     * @param game the game to save
+     */
+    public static void write(String file, GameOfLife game) throws IOException {
+        if (file.endsWith(BINARY_EXTENSION)) {
+            BinaryGridFormat.write(file, game.getGrid(), game.getGeneration());
+        } else if (file.endsWith(RleFormat.EXTENSION)) {
+            RleFormat.write(file, game.getGrid());
+        } else if (file.endsWith(CellListFormat.LIFE_EXTENSION)) {
+            CellListFormat.writeLife(file, game.getGrid());
+        } else if (file.endsWith(CellListFormat.BINARY_EXTENSION)) {
+            CellListFormat.writeBinary(file, game);
+        } else {
+            writeText(file, game.getGrid());
+        }
+    }
+
+    /**
+     * Writes grid to file in the text format
+     * @param file name of the file, replaced if it exists
+     * @param grid the grid to write
+     */
+    public static void writeText(String file, boolean[][] grid) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            writeText(out, grid);
+        }
+    }
+
+    /**
+     * Writes grid to out in the text format
+     * @param out where the grid is written, not closed
+     * @param grid the grid to write
+     */
+    public static void writeText(Writer out, boolean[][] grid) throws IOException {
+        out.write(Integer.toString(grid.length) + "\n"); // rows
+        out.write(Integer.toString(grid[0].length) + "\n"); // cols
+
+        for (boolean[] row : grid) {
+            for (boolean cell : row) {
+                out.write(cell ? "true   " : "false  ");
+            }
+            out.write("\n");
+        }
+    }
+
+    /**
+     * Writes a packed grid to file in the text format
+     * @param file name of the file, replaced if it exists
+     * @param grid the grid to write
+     */
+    public static void writeText(String file, PackedGrid grid) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeText(channel, grid);
+        }
+    }
+
+    /**
+     * Writes a packed grid to channel in the text format, encoding the tokens straight into
+     * a byte buffer
+     * @param channel where the grid is written, not closed
+     * @param grid the grid to write
+     */
+    public static void writeText(WritableByteChannel channel, PackedGrid grid) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Math.max(1 << 16, TOKEN_BYTES * grid.cols + 1));
+        buf.put((grid.rows + "\n" + grid.cols + "\n").getBytes());
+
+        for (int r = 0; r < grid.rows; r++) {
+            if (buf.remaining() < TOKEN_BYTES * grid.cols + 1) {
+                flush(buf, channel);
+            }
+            encodeRow(grid, r, buf);
+        }
+        flush(buf, channel);
+    }
+
+    /**
+     * Encodes one row of grid as text tokens followed by a line break
+     * @param grid the grid the row is taken from
+     * @param row index of the row
+     * @param buf where the row is put, needs TOKEN_BYTES * cols + 1 bytes free
+     */
+    public static void encodeRow(PackedGrid grid, int row, ByteBuffer buf) {
+        int base = row * grid.wordsPerRow;
+        for (int c = 0; c < grid.cols; c++) {
+            boolean alive = ((grid.words[base + (c >>> 6)] >>> (c & 63)) & 1L) != 0;
+            buf.put(alive ? ALIVE_TOKEN : DEAD_TOKEN);
+        }
+        buf.put((byte)'\n');
+    }
+
+    /**
+     * Encodes one row of cells as text tokens followed by a line break
+     * @param row the cells of the row
+     * @param buf where the row is put, needs TOKEN_BYTES * row.length + 1 bytes free
+     */
+    public static void encodeRow(boolean[] row, ByteBuffer buf) {
+        for (boolean alive : row) {
+            buf.put(alive ? ALIVE_TOKEN : DEAD_TOKEN);
+        }
+        buf.put((byte)'\n');
+    }
+
+    private static void flush(ByteBuffer buf, WritableByteChannel channel) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
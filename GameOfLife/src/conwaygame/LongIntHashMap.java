@@ -0,0 +1,125 @@
+package conwaygame;
+/*
+ * Open addressing hash map from long keys to int counts.
+ *
+ * Keys must be nonnegative since -1 marks an empty slot. clear() keeps the backing arrays,
+ * so a map that is refilled every generation stops allocating once it has grown to fit.
+ */
+
+import java.util.Arrays;
+
+public class LongIntHashMap {
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap() {
+        this(64);
+    }
+
+    public LongIntHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, 2 * expected - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Adds one to the value stored for key, starting from 0 if key is not in the map
+     * @param key nonnegative key
+     */
+    public void increment(long key) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = 1;
+        if (++size > keys.length / 2) {
+            rehash();
+        }
+    }
+
+    /**
+     * Returns the value stored for key
+     * @param key nonnegative key
+     * @return the value, or 0 if key is not in the map
+     */
+    public int get(long key) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Removes every entry but keeps the current capacity
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Entries are walked by slot: for (int i = 0; i < capacity(); i++) if (isUsed(i)) ...
+    public int capacity() {
+        return keys.length;
+    }
+
+    public boolean isUsed(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32)) & mask;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(2 * oldKeys.length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        size = 0;
+    }
+}
@@ -0,0 +1,129 @@
+package conwaygame;
+/*
+ * A grid stored one bit per cell, 64 cells to a long.
+ *
+ * Each row starts on a new word so rows can be copied and compared word by word.
+ * Bit j of a row lives in words[row * wordsPerRow + j / 64] at bit position j % 64.
+ */
+public class PackedGrid {
+    public final int rows;
+    public final int cols;
+    public final int wordsPerRow;
+    public final long[] words;
+
+    public PackedGrid(int rows, int cols) {
+        this(rows, cols, new long[rows * wordsPerRow(cols)]);
+    }
+
+    /**
+     * Wraps existing words without copying them
+     * @param words at least rows * wordsPerRow(cols) words laid out as described above
+     */
+    public PackedGrid(int rows, int cols, long[] words) {
+        this.rows = rows;
+        this.cols = cols;
+        this.wordsPerRow = wordsPerRow(cols);
+        if (words.length < rows * wordsPerRow) {
+            throw new IllegalArgumentException("need " + (rows * wordsPerRow) + " words for a " + rows + "x" + cols + " grid, got " + words.length);
+        }
+        this.words = words;
+    }
+
+    /**
+     * Returns the number of words a row of cols cells takes up
+     * @param cols number of columns
+     * @return int for words per row
+     */
+    public static int wordsPerRow(int cols) {
+        return (cols + 63) >>> 6;
+    }
+
+    /**
+     * Packs a boolean[][] grid
+     * @param grid the grid to pack
+     * @return PackedGrid holding the same cells
+     */
+    public static PackedGrid pack(boolean[][] grid) {
+        PackedGrid packed = new PackedGrid(grid.length, grid[0].length);
+        packed.packFrom(grid);
+        return packed;
+    }
+
+    /**
+     * Overwrites every cell with the cells of grid, which must be the same size
+     * @param grid the grid to copy from
+     */
+    public void packFrom(boolean[][] grid) {
+        for (int r = 0; r < rows; r++) {
+            boolean[] row = grid[r];
+            int base = r * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long word = 0;
+                int start = w << 6;
+                int end = Math.min(cols, start + 64);
+                for (int c = start; c < end; c++) {
+                    if (row[c]) {
+                        word |= 1L << (c - start);
+                    }
+                }
+                words[base + w] = word;
+            }
+        }
+    }
+
+    /**
+     * Unpacks into a new boolean[][]
+     * @return boolean[][] holding the same cells
+     */
+    public boolean[][] unpack() {
+        boolean[][] grid = new boolean[rows][cols];
+        unpackInto(grid);
+        return grid;
+    }
+
+    /**
+     * Writes every cell into grid, which must be the same size
+     * @param grid the grid to copy into
+     * @return the number of alive cells
+     */
+    public int unpackInto(boolean[][] grid) {
+        int population = 0;
+        for (int r = 0; r < rows; r++) {
+            boolean[] row = grid[r];
+            int base = r * wordsPerRow;
+            for (int c = 0; c < cols; c++) {
+                boolean alive = ((words[base + (c >>> 6)] >>> (c & 63)) & 1L) != 0;
+                row[c] = alive;
+                if (alive) {
+                    population++;
+                }
+            }
+        }
+        return population;
+    }
+
+    public boolean get(int row, int col) {
+        return ((words[row * wordsPerRow + (col >>> 6)] >>> (col & 63)) & 1L) != 0;
+    }
+
+    public void set(int row, int col, boolean alive) {
+        int i = row * wordsPerRow + (col >>> 6);
+        if (alive) {
+            words[i] |= 1L << (col & 63);
+        } else {
+            words[i] &= ~(1L << (col & 63));
+        }
+    }
+
+    /**
+     * Returns the number of alive cells
+     * @return int for the population
+     */
+    public int population() {
+        int population = 0;
+        for (int i = rows * wordsPerRow - 1; i >= 0; i--) {
+            population += Long.bitCount(words[i]);
+        }
+        return population;
+    }
+}
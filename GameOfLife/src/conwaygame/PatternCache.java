@@ -0,0 +1,135 @@
+package conwaygame;
+/*
+ * Keeps recently opened patterns in memory so Reset and reopening skip parsing the file.
+ *
+ * Patterns are stored bit-packed and keyed by the file's canonical path. A cached pattern is
+ * only used while the file still has the modification time and size it had when it was read,
+ * so editing or replacing the file makes the next open read it again. The least recently
+ * opened patterns are dropped once the cache holds more than its budget of bytes.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class PatternCache {
+
+    /**
+     * Reads a pattern file into a game, called when the cache has no valid copy
+     */
+    public interface Loader {
+        void load(String file, GameOfLife game) throws IOException;
+    }
+
+    private static class Entry {
+        long modified;
+        long size;
+        long generation;
+        PackedGrid grid;
+
+        long bytes() {
+            return 8L * grid.words.length + 64;
+        }
+    }
+
+    private final long budget;
+    private final Loader loader;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);  // Access order, eldest first
+    private long bytes;
+    private int hits;
+    private int misses;
+
+    /**
+     * @param budget most bytes of packed grids kept at once
+     * @param loader reads files that are not cached
+     */
+    public PatternCache(long budget, Loader loader) {
+        this.budget = budget;
+        this.loader = loader;
+    }
+
+    /**
+     * Returns a new game holding the pattern in file, from the cache if the file has not changed
+     * @param file name of the pattern file
+     * @return GameOfLife at the pattern's saved generation, its grid is not shared with the cache
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized GameOfLife open(String file) throws IOException {
+        File f = new File(file);
+        String key = f.getCanonicalPath();
+        BasicFileAttributes attributes = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        GameOfLife game = new GameOfLife();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.modified == modified && entry.size == size) {
+            hits++;
+            boolean[][] grid = new boolean[entry.grid.rows][entry.grid.cols];
+            game.setGrid(grid, entry.grid.unpackInto(grid));
+            game.setGeneration(entry.generation);
+            return game;
+        }
+
+        misses++;
+        remove(key);
+        loader.load(file, game);
+
+        entry = new Entry();
+        entry.modified = modified;
+        entry.size = size;
+        entry.generation = game.getGeneration();
+        entry.grid = PackedGrid.pack(game.getGrid());
+        if (entry.bytes() <= budget) {
+            entries.put(key, entry);
+            bytes += entry.bytes();
+            evict();
+        }
+        return game;
+    }
+
+    /**
+     * Drops the cached copy of file, if any
+     * @param file name of the pattern file
+     */
+    public synchronized void invalidate(String file) throws IOException {
+        remove(new File(file).getCanonicalPath());
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            bytes -= old.bytes();
+        }
+    }
+
+    // Drops least recently opened patterns until the cache is within its budget
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (bytes > budget && it.hasNext()) {
+            bytes -= it.next().getValue().bytes();
+            it.remove();
+        }
+    }
+}
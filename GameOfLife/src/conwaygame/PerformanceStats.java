@@ -0,0 +1,134 @@
+package conwaygame;
+/*
+ * Collects timings for the performance overlay on the METHOD page.
+ *
+ * Step and render times go into fixed ring buffers holding the last WINDOW samples, so
+ * recording one is a couple of array writes and never allocates; it can be done for every
+ * generation even at full speed. Percentiles are worked out only when asked for, by sorting
+ * a copy in a buffer that is also allocated once. Rates (generations and allocated bytes
+ * per second) are measured between two calls to sample(), which the overlay makes a few
+ * times a second.
+ *
+ * Steps are recorded by the simulation thread and everything else by the drawing thread,
+ * so the methods are synchronized.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+public class PerformanceStats {
+
+    public static final int WINDOW = 256;
+
+    private final long[] stepNanos = new long[WINDOW];
+    private final long[] renderNanos = new long[WINDOW];
+    private final long[] sorted = new long[WINDOW];  // Scratch space for percentiles
+    private long steps;    // Steps recorded so far, the next one goes in steps % WINDOW
+    private long renders;
+
+    // State at the last sample()
+    private long sampleTime;
+    private long sampleGeneration;
+    private long sampleAllocated = -1;
+    private double generationRate;
+    private double allocationRate = -1;
+
+    /**
+     * Records how long one generation took to compute
+     * @param nanos the time taken in nanoseconds
+     */
+    public synchronized void recordStep(long nanos) {
+        stepNanos[(int)(steps++ % WINDOW)] = nanos;
+    }
+
+    /**
+     * Records how long one frame took to draw and show
+     * @param nanos the time taken in nanoseconds
+     */
+    public synchronized void recordRender(long nanos) {
+        renderNanos[(int)(renders++ % WINDOW)] = nanos;
+    }
+
+    /**
+     * Returns a percentile of the last WINDOW step times
+     * @param p the percentile, from 0 to 100
+     * @return nanoseconds, 0 if no step has been recorded
+     */
+    public synchronized long stepPercentile(double p) {
+        return percentile(stepNanos, steps, p);
+    }
+
+    /**
+     * Returns a percentile of the last WINDOW frame times
+     * @param p the percentile, from 0 to 100
+     * @return nanoseconds, 0 if no frame has been recorded
+     */
+    public synchronized long renderPercentile(double p) {
+        return percentile(renderNanos, renders, p);
+    }
+
+    /**
+     * Measures the generation and allocation rates since the last call
+     * @param generation the generation the game is at now
+     */
+    public synchronized void sample(long generation) {
+        long now = System.nanoTime();
+        long allocated = allocatedBytes();
+        if (sampleTime != 0 && now > sampleTime) {
+            double seconds = (now - sampleTime) / 1e9;
+            generationRate = Math.max(0, generation - sampleGeneration) / seconds;
+            allocationRate = (allocated >= 0 && sampleAllocated >= 0) ? (allocated - sampleAllocated) / seconds : -1;
+        }
+        sampleTime = now;
+        sampleGeneration = generation;
+        sampleAllocated = allocated;
+    }
+
+    /**
+     * Returns the generations per second measured by the last sample()
+     * @return double for the generation rate
+     */
+    public synchronized double getGenerationRate() {
+        return generationRate;
+    }
+
+    /**
+     * Returns the bytes allocated per second by all threads, measured by the last sample()
+     * @return double for the allocation rate, negative if the JVM can't tell
+     */
+    public synchronized double getAllocationRate() {
+        return allocationRate;
+    }
+
+    // Nearest-rank percentile of the filled part of ring
+    private long percentile(long[] ring, long count, double p) {
+        int n = (int)Math.min(count, WINDOW);
+        if (n == 0) {
+            return 0;
+        }
+        System.arraycopy(ring, 0, sorted, 0, n);
+        Arrays.sort(sorted, 0, n);
+        int rank = (int)Math.ceil(p / 100 * n);
+        return sorted[Math.max(0, Math.min(n - 1, rank - 1))];
+    }
+
+    // Total bytes allocated on the heap by live threads, -1 if the JVM doesn't count them
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean)threads;
+        if (!counter.isThreadAllocatedMemorySupported() || !counter.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : counter.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+}
@@ -37,8 +37,10 @@ public class Rectangle {
     }
 
     public boolean containsMouse() {
-        double mX = StdDraw.mouseX();
-        double mY = StdDraw.mouseY();
-        return ((x - halfWidth < mX && mX < x + halfWidth) && (y - halfHeight < mY && mY < y + halfHeight));
+        return contains(StdDraw.mouseX(), StdDraw.mouseY());
+    }
+
+    public boolean contains(double pX, double pY) {
+        return ((x - halfWidth < pX && pX < x + halfWidth) && (y - halfHeight < pY && pY < y + halfHeight));
     }
 }
@@ -0,0 +1,204 @@
+package conwaygame;
+/*
+ * Run length encoded patterns, the format most other Life programs exchange.
+ *
+ *   #N Glider
+ *   x = 3, y = 3, rule = B3/S23
+ *   bo$2bo$3o!
+ *
+ * Lines starting with # are comments. The header gives the width (x) and height (y), which
+ * become the size of the board. In the body a number repeats the tag after it, b is a dead
+ * cell, o (or any other letter) an alive one, $ ends a row and ! ends the pattern.
+ * Runs are decoded straight into the grid, so memory stays at the grid plus the input buffer
+ * however large the file is.
+ */
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.InputMismatchException;
+
+public class RleFormat {
+
+    public static final String EXTENSION = ".rle";
+    private static final int LINE_LENGTH = 70;  // Lines are kept under 70 characters like other tools do
+
+    /**
+     * Checks whether in looks like the start of an RLE pattern
+     * @param in input positioned at the first non-whitespace byte
+     * @return true if the input starts with a comment or the header line
+     */
+    public static boolean detect(ChannelInput in) throws IOException {
+        return in.startsWith("#") || in.startsWith("x");
+    }
+
+    /**
+     * Reads an RLE pattern from in into game, replacing its grid
+     * @param in input positioned at the start of the pattern
+     * @param game the game whose grid is replaced
+     * @throws InputMismatchException if the pattern is malformed or uses another rule
+     */
+    public static void read(ChannelInput in, GameOfLife game) throws IOException {
+        // Comments, then the header
+        while (in.skipWhitespace() && in.peek() == '#') {
+            in.skipLine();
+        }
+        int[] size = readHeader(in);
+        int rows = size[1];
+        int cols = size[0];
+
+        boolean[][] grid = new boolean[rows][cols];
+        int population = 0;
+        int row = 0;
+        int col = 0;
+        int run = 0;
+
+        int b;
+        while ((b = in.read()) != -1 && b != '!') {
+            if (b >= '0' && b <= '9') {
+                run = 10 * run + (b - '0');
+                if (run > Math.max(rows, cols)) {
+                    throw new InputMismatchException("run of " + run + " does not fit in a " + rows + "x" + cols + " pattern");
+                }
+                continue;
+            }
+            if (b <= ' ') {
+                continue;
+            }
+            int count = (run == 0) ? 1 : run;
+            run = 0;
+
+            if (b == '$') {
+                row += count;
+                col = 0;
+            } else if (b == 'b' || b == '.') {
+                col += count;
+            } else if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z')) {
+                if (row >= rows || col + count > cols) {
+                    throw new InputMismatchException("pattern runs past its " + rows + "x" + cols + " header at byte " + in.position());
+                }
+                boolean[] cells = grid[row];
+                for (int i = 0; i < count; i++) {
+                    cells[col++] = true;
+                }
+                population += count;
+            } else if (b == '#') {
+                in.skipLine();  // Some tools put comments after the body
+            } else {
+                throw new InputMismatchException("unexpected '" + (char)b + "' in RLE pattern at byte " + in.position());
+            }
+        }
+        game.setGrid(grid, population);
+    }
+
+    /**
+     * Writes grid to file as an RLE pattern
+     * @param file name of the file, replaced if it exists
+     * @param grid the grid to write
+     */
+    public static void write(String file, boolean[][] grid) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            write(out, grid);
+        }
+    }
+
+    /**
+     * Writes grid to out as an RLE pattern
+     * @param out where the pattern is written, not closed
+     * @param grid the grid to write
+     */
+    public static void write(Writer out, boolean[][] grid) throws IOException {
+        int rows = grid.length;
+        int cols = grid[0].length;
+        out.write("x = " + cols + ", y = " + rows + ", rule = " + BinaryGridFormat.ruleString(GameOfLife.CONWAY_RULE) + "\n");
+
+        LineWrapper line = new LineWrapper(out);
+        int pendingRows = 0;  // Row ends not written yet, so runs of empty rows become one n$
+        for (int r = 0; r < rows; r++) {
+            boolean[] cells = grid[r];
+            int c = 0;
+            while (c < cols) {
+                boolean alive = cells[c];
+                int start = c;
+                while (c < cols && cells[c] == alive) {
+                    c++;
+                }
+                if (!alive && c == cols) {
+                    break;  // Trailing dead cells are implied by the row end
+                }
+                if (pendingRows > 0) {
+                    line.run(pendingRows, '$');
+                    pendingRows = 0;
+                }
+                line.run(c - start, alive ? 'o' : 'b');
+            }
+            pendingRows++;
+        }
+        line.run(1, '!');
+        out.write("\n");
+    }
+
+    // Parses "x = 3, y = 3, rule = B3/S23" into {x, y}
+    private static int[] readHeader(ChannelInput in) throws IOException {
+        StringBuilder header = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            header.append((char)b);
+        }
+
+        int x = -1;
+        int y = -1;
+        for (String part : header.toString().split(",")) {
+            String[] keyValue = part.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new InputMismatchException("invalid RLE header \"" + header.toString().trim() + "\"");
+            }
+            String key = keyValue[0].trim();
+            String value = keyValue[1].trim();
+            try {
+                if (key.equals("x")) {
+                    x = Integer.parseInt(value);
+                } else if (key.equals("y")) {
+                    y = Integer.parseInt(value);
+                } else if (key.equals("rule") && !isConway(value)) {
+                    throw new InputMismatchException("pattern uses rule " + value + ", only " + BinaryGridFormat.ruleString(GameOfLife.CONWAY_RULE) + " is supported");
+                }
+            } catch (NumberFormatException e) {
+                throw new InputMismatchException("invalid RLE header \"" + header.toString().trim() + "\"");
+            }
+        }
+        if (x <= 0 || y <= 0) {
+            throw new InputMismatchException("RLE header needs a positive x and y, got \"" + header.toString().trim() + "\"");
+        }
+        return new int[] {x, y};
+    }
+
+    private static boolean isConway(String rule) {
+        String r = rule.toUpperCase();
+        return r.equals("B3/S23") || r.equals("23/3");
+    }
+
+    // Writes runs, starting a new line before one would go past LINE_LENGTH
+    private static class LineWrapper {
+        private final Writer out;
+        private int length;
+
+        LineWrapper(Writer out) {
+            this.out = out;
+        }
+
+        void run(int count, char tag) throws IOException {
+            int width = (count == 1) ? 1 : Integer.toString(count).length() + 1;
+            if (length + width > LINE_LENGTH) {
+                out.write("\n");
+                length = 0;
+            }
+            if (count != 1) {
+                out.write(Integer.toString(count));
+            }
+            out.write(tag);
+            length += width;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package conwaygame;
+/*
+ * Steps text grids that are too big for memory, one row at a time.
+ *
+ * A generation is computed in one pass over the input file. Only three rows of the current
+ * generation are held at once, plus its first two rows, which are needed again at the end
+ * because the board wraps around: the last row's neighbor below is row 0, and row 0's
+ * neighbor above is the last row. Each row of the next generation is written to the output
+ * as soon as it is known. Row 0 is known last, but every row of a text grid written by
+ * GridWriter is TOKEN_BYTES * cols + 1 bytes long, so its place in the file is fixed and it is
+ * written there at the end. Memory use depends only on the number of columns.
+ *
+ * Several generations go back and forth between the output file and a temporary file next
+ * to it, so the last one ends up in the output.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.InputMismatchException;
+
+public class RowStreamer {
+
+    public static final String TEMP_EXTENSION = ".tmp";
+
+    /**
+     * Computes generations of the text grid in input and writes the last one to output
+     * @param input name of a text grid file
+     * @param output name of the file the result is written to in the text format, replaced if it exists
+     * @param generations number of generations to compute
+     * @return the population of the last generation
+     * @throws InputMismatchException if input is not a valid text grid
+     */
+    public static long step(String input, String output, long generations) throws IOException {
+        if (new File(input).getCanonicalPath().equals(new File(output).getCanonicalPath())) {
+            throw new IllegalArgumentException("output must be a different file than input");
+        }
+        if (generations == 0) {
+            return copy(input, output);
+        }
+
+        String temp = output + TEMP_EXTENSION;
+        String from = input;
+        long population = 0;
+        try {
+            for (long g = 1; g <= generations; g++) {
+                String to = ((generations - g) % 2 == 0) ? output : temp;
+                population = stepOnce(from, to);
+                from = to;
+            }
+        } finally {
+            Files.deleteIfExists(Paths.get(temp));
+        }
+        return population;
+    }
+
+    /**
+     * Computes the next generation of the text grid in input and writes it to output
+     * @param input name of a text grid file
+     * @param output name of the file the next generation is written to, replaced if it exists
+     * @return the population of the next generation
+     */
+    public static long stepOnce(String input, String output) throws IOException {
+        try (ChannelInput in = ChannelInput.open(input);
+             FileChannel out = FileChannel.open(Paths.get(output), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int rows = in.readInt();
+            int cols = in.readInt();
+            if (rows <= 0 || cols <= 0) {
+                throw new InputMismatchException("grid must have at least one row and column, got " + rows + "x" + cols);
+            }
+
+            byte[] header = (rows + "\n" + cols + "\n").getBytes();
+            int rowBytes = GridWriter.TOKEN_BYTES * cols + 1;
+            ByteBuffer buf = ByteBuffer.allocate(Math.max(1 << 16, rowBytes));
+            long position = header.length + (long)rowBytes;  // Row 0 goes in between, once it is known
+            buf.put(header);
+            write(buf, out, 0);
+
+            boolean[] first = readRow(in, cols);
+            boolean[] second = (rows > 1) ? readRow(in, cols) : first;
+            boolean[] above = first;
+            boolean[] row = second;
+            boolean[] below = new boolean[cols];
+            boolean[] next = new boolean[cols];
+            long population = 0;
+
+            // Rows 1 to rows - 1, each needs the row after it, which for the last row is row 0
+            for (int r = 1; r < rows; r++) {
+                boolean[] after = (r + 1 < rows) ? readRow(in, cols, below) : first;
+                population += GameOfLife.computeRow(above, row, after, next);
+                if (buf.remaining() < rowBytes) {
+                    position += write(buf, out, position);
+                }
+                GridWriter.encodeRow(next, buf);
+
+                // Slide the window down, recycling the row that leaves it unless it must be kept
+                boolean[] leaving = above;
+                above = row;
+                row = after;
+                below = (leaving == first || leaving == second) ? new boolean[cols] : leaving;
+            }
+            write(buf, out, position);
+
+            // Row 0: the last row is above it and row 1 is below
+            population += GameOfLife.computeRow(above, first, second, next);
+            GridWriter.encodeRow(next, buf);
+            write(buf, out, header.length);
+            return population;
+        }
+    }
+
+    // Reads the next cols cells into a new row
+    private static boolean[] readRow(ChannelInput in, int cols) throws IOException {
+        return readRow(in, cols, new boolean[cols]);
+    }
+
+    // Reads the next cols cells into row
+    private static boolean[] readRow(ChannelInput in, int cols, boolean[] row) throws IOException {
+        for (int c = 0; c < cols; c++) {
+            row[c] = in.readBoolean();
+        }
+        return row;
+    }
+
+    // Writes out buf at position, returns the number of bytes written
+    private static int write(ByteBuffer buf, FileChannel out, long position) throws IOException {
+        buf.flip();
+        int written = 0;
+        while (buf.hasRemaining()) {
+            written += out.write(buf, position + written);
+        }
+        buf.clear();
+        return written;
+    }
+
+    // Zero generations: the input is copied as it is, after checking it is a text grid
+    private static long copy(String input, String output) throws IOException {
+        long population = 0;
+        try (ChannelInput in = ChannelInput.open(input)) {
+            int rows = in.readInt();
+            int cols = in.readInt();
+            boolean[] row = new boolean[Math.max(cols, 0)];
+            for (int r = 0; r < rows; r++) {
+                for (boolean alive : readRow(in, cols, row)) {
+                    if (alive) {
+                        population++;
+                    }
+                }
+            }
+        }
+        Files.copy(Paths.get(input), Paths.get(output), StandardCopyOption.REPLACE_EXISTING);
+        return population;
+    }
+}
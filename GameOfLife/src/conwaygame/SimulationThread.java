@@ -0,0 +1,196 @@
+package conwaygame;
+/*
+ * Steps a game on its own thread so the simulation and the drawing don't wait for each other.
+ *
+ * While playing, the thread computes generations back to back and after each one publishes
+ * a Snapshot of it. A snapshot is never changed after it is published (GameOfLife makes a new
+ * grid array every generation), so the drawing side can take the latest one whenever it is
+ * ready for a frame and simply never sees the generations computed in between.
+ *
+ * A target rate paces the thread: it sleeps until each generation is due, and when it falls
+ * behind it carries on from the current time rather than computing a burst of generations to
+ * catch up. Without a target it runs as fast as it can. Either way, the drawing side only ever
+ * shows the latest snapshot, so a slow display drops frames instead of slowing the simulation.
+ *
+ * The game must only be used by other threads while the simulation is paused: pause() waits
+ * for the generation being computed to finish, after which the game is safe to use.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+public class SimulationThread {
+
+    /**
+     * One published generation
+     */
+    public static class Snapshot {
+        public final boolean[][] grid;   // Not to be modified
+        public final long generation;
+        public final int population;
+        public final int births;
+        public final int deaths;
+
+        public Snapshot(GameOfLife game) {
+            grid = game.getGrid();
+            generation = game.getGeneration();
+            population = game.getTotalAliveCells();
+            births = game.getBirths();
+            deaths = game.getDeaths();
+        }
+    }
+
+    private final GameOfLife game;
+    private final PerformanceStats stats;
+    private volatile Snapshot latest;
+
+    // Guarded by this
+    private RuntimeException failure;
+    private boolean playing;
+    private boolean stepping;  // The thread is inside nextGeneration()
+    private boolean stopped;
+    private double targetRate;  // Generations per second, 0 for as fast as possible
+    private long nextDue;       // System.nanoTime() at which the next generation is due
+
+    /**
+     * Starts a paused simulation thread for game
+     * @param game the game to step, only used by this thread while playing
+     * @param stats where the time each generation takes is recorded, or null
+     */
+    public SimulationThread(GameOfLife game, PerformanceStats stats) {
+        this.game = game;
+        this.stats = stats;
+        latest = new Snapshot(game);
+        Thread thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts or resumes stepping
+     */
+    public synchronized void play() {
+        playing = true;
+        nextDue = System.nanoTime();
+        notifyAll();
+    }
+
+    /**
+     * Stops stepping and waits for the generation being computed to be published
+     */
+    public synchronized void pause() {
+        playing = false;
+        while (stepping) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Pauses and ends the thread, the simulation can't be played again
+     */
+    public void stop() {
+        pause();
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Sets how many generations per second are computed while playing
+     * @param generationsPerSecond the target rate, 0 to step as fast as possible
+     */
+    public synchronized void setTargetRate(double generationsPerSecond) {
+        if (!(generationsPerSecond >= 0)) {
+            throw new IllegalArgumentException("rate must not be negative, got " + generationsPerSecond);
+        }
+        targetRate = generationsPerSecond;
+        nextDue = System.nanoTime();
+        notifyAll();
+    }
+
+    public synchronized double getTargetRate() {
+        return targetRate;
+    }
+
+    public synchronized boolean isPlaying() {
+        return playing;
+    }
+
+    public GameOfLife getGame() {
+        return game;
+    }
+
+    /**
+     * Returns the most recently published generation
+     * @return Snapshot of the latest generation, never null
+     */
+    public Snapshot latest() {
+        return latest;
+    }
+
+    /**
+     * Returns what stopped the simulation if a generation could not be computed, and forgets it
+     * @return the exception, or null if nothing went wrong since this was last called
+     */
+    public synchronized RuntimeException takeFailure() {
+        RuntimeException e = failure;
+        failure = null;
+        return e;
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (this) {
+                // Wait to be played, then until the next generation is due
+                try {
+                    while (true) {
+                        if (stopped) {
+                            return;
+                        }
+                        if (!playing) {
+                            wait();
+                            continue;
+                        }
+                        long early = (targetRate > 0) ? nextDue - System.nanoTime() : 0;
+                        if (early <= 0) {
+                            break;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, early);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                stepping = true;
+                if (targetRate > 0) {
+                    long period = (long)(1e9 / targetRate);
+                    long now = System.nanoTime();
+                    nextDue = (now - nextDue > period) ? now + period : nextDue + period;
+                }
+            }
+
+            try {
+                long start = System.nanoTime();
+                game.nextGeneration();
+                if (stats != null) {
+                    stats.recordStep(System.nanoTime() - start);
+                }
+                latest = new Snapshot(game);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    failure = e;
+                    playing = false;
+                }
+            } finally {
+                synchronized (this) {
+                    stepping = false;
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package conwaygame;
+/*
+ * Keeps every saved version of a pattern in one file, indexed by an append-only manifest.
+ *
+ * <pattern>.snapshots holds the saved grids back to back, each one a complete binary grid
+ * (see BinaryGridFormat). <pattern>.manifest holds one fixed size record per version:
+ *
+ *   0  version     int
+ *   4  reserved    int
+ *   8  generation  long
+ *  16  population  long
+ *  24  hash        long, CRC32 of the grid's payload
+ *  32  offset      long, where the grid starts in the snapshots file
+ *  40  length      long, bytes taken by the grid
+ *
+ * Versions count up from 0, so the next version is the manifest length / RECORD_BYTES and
+ * never needs a directory listing. The manifest is read once when the store is opened and
+ * kept in memory, giving constant time lookups by version and by generation. A grid is
+ * appended before its manifest record, so a save cut short leaves no record pointing at it.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+
+public class SnapshotStore implements Closeable {
+
+    public static final String DATA_EXTENSION = ".snapshots";
+    public static final String MANIFEST_EXTENSION = ".manifest";
+    public static final int RECORD_BYTES = 48;
+
+    /**
+     * One manifest record
+     */
+    public static class Entry {
+        public int version;
+        public long generation;
+        public long population;
+        public long hash;
+        public long offset;
+        public long length;
+    }
+
+    private final String pattern;
+    private final FileChannel data;
+    private final FileChannel manifest;
+    private final ArrayList<Entry> entries = new ArrayList<Entry>();
+    private final HashMap<Long, Entry> byGeneration = new HashMap<Long, Entry>();  // Latest version of each generation
+
+    /**
+     * Opens the store of pattern, creating its files if they don't exist yet
+     * @param pattern name of the pattern, the files are pattern + DATA_EXTENSION and pattern + MANIFEST_EXTENSION
+     */
+    public SnapshotStore(String pattern) throws IOException {
+        this.pattern = pattern;
+        data = FileChannel.open(Paths.get(pattern + DATA_EXTENSION), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        manifest = FileChannel.open(Paths.get(pattern + MANIFEST_EXTENSION), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        readManifest();
+    }
+
+    /**
+     * Appends grid as the next version
+     * @param grid the grid to save
+     * @param generation generation number of grid
+     * @return the version grid was saved as
+     */
+    public synchronized int append(PackedGrid grid, long generation) throws IOException {
+        ByteBuffer payload = BinaryGridFormat.payload(grid);
+        long hash = BinaryGridFormat.checksum(payload);
+        ByteBuffer header = BinaryGridFormat.header(grid, generation, hash);
+
+        Entry entry = new Entry();
+        entry.version = entries.size();
+        entry.generation = generation;
+        entry.population = grid.population();
+        entry.hash = hash;
+        entry.offset = data.size();
+        entry.length = header.remaining() + payload.remaining();
+
+        long position = entry.offset;
+        while (header.hasRemaining()) {
+            position += data.write(header, position);
+        }
+        while (payload.hasRemaining()) {
+            position += data.write(payload, position);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(entry.version);
+        record.putInt(0);
+        record.putLong(entry.generation);
+        record.putLong(entry.population);
+        record.putLong(entry.hash);
+        record.putLong(entry.offset);
+        record.putLong(entry.length);
+        record.flip();
+        position = (long)entry.version * RECORD_BYTES;
+        while (record.hasRemaining()) {
+            position += manifest.write(record, position);
+        }
+
+        entries.add(entry);
+        byGeneration.put(generation, entry);
+        return entry.version;
+    }
+
+    /**
+     * Returns the version the next append() will save as
+     * @return int for the next version
+     */
+    public synchronized int nextVersion() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the manifest record of version
+     * @param version a saved version
+     * @return Entry for the version
+     * @throws NoSuchElementException if the version has not been saved
+     */
+    public synchronized Entry entry(int version) {
+        if (version < 0 || version >= entries.size()) {
+            throw new NoSuchElementException(pattern + " has no version " + version);
+        }
+        return entries.get(version);
+    }
+
+    /**
+     * Returns the latest saved version of a generation
+     * @param generation generation number to look for
+     * @return Entry for the version, or null if the generation was never saved
+     */
+    public synchronized Entry findGeneration(long generation) {
+        return byGeneration.get(generation);
+    }
+
+    /**
+     * Loads a saved version into game, replacing its grid and generation
+     * @param version a saved version
+     * @param game the game whose grid is replaced
+     */
+    public void load(int version, GameOfLife game) throws IOException {
+        Entry entry = entry(version);
+        ByteBuffer buf = data.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.length);
+        BinaryGridFormat.read(buf, game);
+    }
+
+    /**
+     * Loads the latest saved version into game, replacing its grid and generation
+     * @param game the game whose grid is replaced
+     * @throws NoSuchElementException if nothing has been saved
+     */
+    public void loadLatest(GameOfLife game) throws IOException {
+        load(nextVersion() - 1, game);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        data.close();
+        manifest.close();
+    }
+
+    // Reads the whole manifest in one go, ignoring a partly written last record
+    private void readManifest() throws IOException {
+        int count = (int)(manifest.size() / RECORD_BYTES);
+        ByteBuffer buf = ByteBuffer.allocate(count * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining() && manifest.read(buf, buf.position()) > 0) {
+            // positional reads until the buffer is full
+        }
+        buf.flip();
+
+        for (int i = 0; i < count; i++) {
+            Entry entry = new Entry();
+            entry.version = buf.getInt();
+            buf.getInt();  // reserved
+            entry.generation = buf.getLong();
+            entry.population = buf.getLong();
+            entry.hash = buf.getLong();
+            entry.offset = buf.getLong();
+            entry.length = buf.getLong();
+            entries.add(entry);
+            byGeneration.put(entry.generation, entry);
+        }
+    }
+}
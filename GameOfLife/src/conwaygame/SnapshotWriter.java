@@ -0,0 +1,87 @@
+package conwaygame;
+/*
+ * Saves grids on a background thread so the window keeps responding while large boards are written.
+ *
+ * append() only takes a bit-packed copy of the grid, which is 1/8 the size of the boolean[][]
+ * and fast to make, and queues it. The copy is added to a SnapshotStore as its next version on
+ * the writer thread, then the callback is told how it went. Saves run one at a time in the
+ * order they were queued.
+ *
+ * The writer thread is a daemon so it never keeps the program alive by itself; call shutdown()
+ * before exiting to let the saves already queued finish.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class SnapshotWriter {
+
+    /**
+     * Told when a save has finished, called on the writer thread
+     */
+    public interface Callback {
+        // name is the store version that was written, error is null if it succeeded
+        void done(String name, Exception error);
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "snapshot-writer");
+        t.setDaemon(true);  // Don't keep the program alive just to finish a save
+        return t;
+    });
+
+    /**
+     * Queues grid to be appended to store as its next version
+     * @param store the pattern's snapshot store
+     * @param grid the grid to save, copied before this returns so it can change afterwards
+     * @param generation generation number of grid
+     * @param callback told when the version has been written, can be null
+     */
+    public void append(SnapshotStore store, boolean[][] grid, long generation, Callback callback) {
+        PackedGrid copy = PackedGrid.pack(grid);
+        executor.execute(() -> {
+            String name = store.getPattern();
+            Exception error = null;
+            try {
+                name = store.getPattern() + " version " + store.append(copy, generation);
+            } catch (IOException | RuntimeException e) {
+                error = e;
+            }
+            if (callback != null) {
+                callback.done(name, error);
+            }
+        });
+    }
+
+    /**
+     * Closes resource once every save queued before this call has finished
+     * @param resource the store or file to close
+     */
+    public void closeLater(Closeable resource) {
+        executor.execute(() -> {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                System.err.println("Could not close snapshot store: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Stops taking saves and waits for the ones already queued to finish
+     * @param timeoutMillis the longest to wait
+     * @return true if every queued save finished in time
+     */
+    public boolean shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
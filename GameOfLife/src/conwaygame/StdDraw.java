@@ -11,9 +11,14 @@ package conwaygame;
  *  and to save the drawings to a file.
  ******************************************************************************/
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
+import java.awt.BorderLayout;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.Dimension;
 import java.awt.FileDialog;
 import java.awt.Font;
 import java.awt.FontMetrics;
@@ -32,12 +37,14 @@ import java.awt.event.MouseMotionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
 
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.awt.image.DirectColorModel;
 import java.awt.image.WritableRaster;
@@ -49,6 +56,8 @@ import java.net.MalformedURLException;
 import java.net.URL;
 
 import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.TreeSet;
 import java.util.NoSuchElementException;
 import javax.imageio.ImageIO;
@@ -59,6 +68,7 @@ import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.JPanel;
 import javax.swing.KeyStroke;
 
 /**
@@ -358,6 +368,10 @@ import javax.swing.KeyStroke;
  *  The {@link #clear()}, {@link #show()}, and {@link #pause(int t)} methods
  *  support the first, third, and fourth of these steps, respectively.
  *  <p>
+ *  Calling {@link #enablePageFlipping()} as well makes {@link #show()} draw the
+ *  offscreen canvas straight into the back buffer of a page-flipped window instead
+ *  of copying it to the onscreen canvas and having Swing repaint that.
+ *  <p>
  *  For example, this code fragment animates two balls moving in a circle.
  *  <pre>
  *   StdDraw.setScale(-2, +2);
@@ -403,6 +417,13 @@ import javax.swing.KeyStroke;
  *  not yet processed) and removes it from the list of saved keystrokes.
  *  The third method tells you whether a key is currently being pressed.
  *  <p>
+ *  Instead of polling, a program can call {@link #enableEvents()} and then wait
+ *  for input with {@link #nextEvent()} or {@link #nextEvent(long)}, which sleep until
+ *  the user presses, drags or releases the mouse or types a key. Each {@link UserEvent}
+ *  records where the mouse was when it happened. Other threads can wake a waiting
+ *  program with {@link #wakeUp()}. Once events are enabled, typed keys are only
+ *  delivered as events and {@link #hasNextKeyTyped()} always returns false.
+ *  <p>
  *  <b>Accessing control parameters.</b>
  *  You can use the following methods to access the current pen color, pen radius,
  *  and font:
@@ -601,6 +622,15 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
     private static BufferedImage offscreenImage, onscreenImage;
     private static Graphics2D offscreen, onscreen;
 
+    // the window's drawing surface and its buffers once page flipping is enabled, null before
+    private static Canvas flipCanvas;
+    private static volatile BufferStrategy strategy;
+    private static boolean keepsBackBuffer;  // the back buffer still holds the last frame after a flip
+    private static final Object presentLock = new Object();
+
+    // the canvas graphics while a layer is being drawn into, null otherwise
+    private static Graphics2D canvas;
+
     // singleton for callbacks: avoids generation of extra .class files
     private static StdDraw std = new StdDraw();
 
@@ -618,6 +648,9 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
     // set of key codes currently pressed down
     private static TreeSet<Integer> keysDown;
 
+    // queue of mouse and key events, null until enableEvents() is called
+    private static volatile LinkedBlockingQueue<UserEvent> events;
+
     // singleton pattern: client can't instantiate
     private StdDraw() { }
 
@@ -662,6 +695,8 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
     private static void init() {
         if (frame != null) frame.setVisible(false);
         frame = new JFrame();
+        flipCanvas = null;
+        strategy = null;
         offscreenImage = new BufferedImage(2*width, 2*height, BufferedImage.TYPE_INT_ARGB);
         onscreenImage  = new BufferedImage(2*width, 2*height, BufferedImage.TYPE_INT_ARGB);
         offscreen = offscreenImage.createGraphics();
@@ -1541,6 +1576,46 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
     }
 
 
+    /**
+     * Draws the specified image centered at (<em>x</em>, <em>y</em>),
+     * rescaled to the specified bounding box. Pixels are scaled with
+     * nearest neighbor interpolation, so each pixel of the image stays a sharp block,
+     * which suits images that were filled in pixel by pixel.
+     *
+     * @param  x the center <em>x</em>-coordinate of the image
+     * @param  y the center <em>y</em>-coordinate of the image
+     * @param  image the image, e.g., a {@link BufferedImage}
+     * @param  scaledWidth the width of the scaled image (in screen coordinates)
+     * @param  scaledHeight the height of the scaled image (in screen coordinates)
+     * @throws IllegalArgumentException if either {@code scaledWidth}
+     *         or {@code scaledHeight} is negative
+     * @throws IllegalArgumentException if {@code x} or {@code y} is either NaN or infinite
+     * @throws IllegalArgumentException if {@code image} is {@code null}
+     */
+    public static void picture(double x, double y, Image image, double scaledWidth, double scaledHeight) {
+        validate(x, "x");
+        validate(y, "y");
+        validate(scaledWidth, "scaled width");
+        validate(scaledHeight, "scaled height");
+        validateNotNull(image, "image");
+        validateNonnegative(scaledWidth, "scaled width");
+        validateNonnegative(scaledHeight, "scaled height");
+
+        double xs = scaleX(x);
+        double ys = scaleY(y);
+        double ws = factorX(scaledWidth);
+        double hs = factorY(scaledHeight);
+        Object interpolation = offscreen.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        offscreen.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        offscreen.drawImage(image, (int) Math.round(xs - ws/2.0),
+                                   (int) Math.round(ys - hs/2.0),
+                                   (int) Math.round(ws),
+                                   (int) Math.round(hs), null);
+        if (interpolation != null) offscreen.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        draw();
+    }
+
+
     /**
      * Draws the specified image centered at (<em>x</em>, <em>y</em>), rotated
      * given number of degrees, and rescaled to the specified bounding box.
@@ -1716,15 +1791,278 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
      * this method unless double buffering is enabled.
      */
     public static void show() {
+        if (strategy != null) {
+            present(0, 0, width, height);
+            return;
+        }
         onscreen.drawImage(offscreenImage, 0, 0, null);
         frame.repaint();
     }
+
+    /**
+     * Shows the drawing in a page-flipped window from now on: {@link #show()} and
+     * {@link #showRegion(double, double, double, double)} draw the offscreen canvas
+     * into the back buffer of the window and flip it to the front, with no copy
+     * into the onscreen canvas and no Swing repaint in between.
+     * Undone by {@link #setCanvasSize(int, int)}.
+     */
+    public static void enablePageFlipping() {
+        if (strategy != null) return;
+        flipCanvas = new Canvas() {
+            @Override
+            public void paint(Graphics g) {
+                if (strategy != null) present(0, 0, width, height);  // uncovered by another window
+            }
+
+            @Override
+            public void update(Graphics g) {
+                paint(g);
+            }
+        };
+        flipCanvas.setPreferredSize(new Dimension(width, height));
+        flipCanvas.setFocusable(false);  // keys keep going to the frame
+        flipCanvas.addMouseListener(std);
+        flipCanvas.addMouseMotionListener(std);
+
+        JPanel pane = new JPanel(new BorderLayout());
+        pane.add(flipCanvas);
+        frame.setContentPane(pane);
+        frame.pack();
+
+        flipCanvas.createBufferStrategy(2);
+        BufferStrategy created = flipCanvas.getBufferStrategy();
+        BufferCapabilities capabilities = created.getCapabilities();
+        keepsBackBuffer = !capabilities.isPageFlipping()
+                       || capabilities.getFlipContents() == BufferCapabilities.FlipContents.COPIED;
+        strategy = created;
+        present(0, 0, width, height);
+    }
+
+    // draws the offscreen canvas from screen pixel (x0, y0) to (x1, y1) into the back buffer and
+    // flips it to the front; the whole canvas if the back buffer doesn't keep the last frame
+    private static void present(int x0, int y0, int x1, int y1) {
+        synchronized (presentLock) {
+            if (!keepsBackBuffer) {
+                x0 = 0;
+                y0 = 0;
+                x1 = width;
+                y1 = height;
+            }
+            do {
+                do {
+                    Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                    // at exactly 2:1, bilinear makes each screen pixel the average of its 2x2 canvas
+                    // pixels, which is cheap and gives a region the same pixels a full present does
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.drawImage(offscreenImage, x0, y0, x1, y1, 2*x0, 2*y0, 2*x1, 2*y1, null);
+                    g.dispose();
+                    // a restored buffer lost what was in it, so all of it is drawn again
+                    if (strategy.contentsRestored()) {
+                        x0 = 0;
+                        y0 = 0;
+                        x1 = width;
+                        y1 = height;
+                    }
+                } while (strategy.contentsRestored());
+                strategy.show();
+            } while (strategy.contentsLost());
+        }
+    }
+    /**
+     * Returns how many pixels of the canvas image a width in user coordinates spans.
+     * The canvas image has twice the resolution of the window, so this is twice
+     * the width in screen pixels.
+     *
+     * @param  w the width in user coordinates
+     * @return the width in canvas image pixels, rounded to the nearest pixel
+     */
+    public static int widthInPixels(double w) {
+        return (int) Math.round(2 * factorX(w));
+    }
+
+    /**
+     * Returns how many pixels of the canvas image a height in user coordinates spans.
+     *
+     * @param  h the height in user coordinates
+     * @return the height in canvas image pixels, rounded to the nearest pixel
+     */
+    public static int heightInPixels(double h) {
+        return (int) Math.round(2 * factorY(h));
+    }
+
+   /***************************************************************************
+    *  Layers.
+    ***************************************************************************/
+
+    /**
+     * A transparent image covering a rectangle of the canvas pixel for pixel, for
+     * drawing that rarely changes. Draw into it once between {@link #beginLayer(Layer)}
+     * and {@link #endLayer()}, then put it on the canvas with {@link #drawLayer(Layer)}
+     * as often as needed, which costs one image copy however much was drawn into it.
+     * A layer is only valid for the canvas size and scale it was created with.
+     */
+    public static final class Layer {
+        private final BufferedImage image;
+        private final int left, top;  // canvas image pixel of the top-left corner
+
+        private Layer(BufferedImage image, int left, int top) {
+            this.image = image;
+            this.left = left;
+            this.top = top;
+        }
+    }
+
+    /**
+     * Creates a layer covering the given rectangle, widened by a pixel on each side
+     * to take in lines drawn along its edges.
+     *
+     * @param  x the <em>x</em>-coordinate of the center of the rectangle
+     * @param  y the <em>y</em>-coordinate of the center of the rectangle
+     * @param  halfWidth one half the width of the rectangle
+     * @param  halfHeight one half the height of the rectangle
+     * @return the new layer, with nothing drawn in it
+     */
+    public static Layer createLayer(double x, double y, double halfWidth, double halfHeight) {
+        validate(x, "x");
+        validate(y, "y");
+        validateNonnegative(halfWidth, "half width");
+        validateNonnegative(halfHeight, "half height");
+        double xa = scaleX(x - halfWidth), xb = scaleX(x + halfWidth);
+        double ya = scaleY(y - halfHeight), yb = scaleY(y + halfHeight);
+        int x0 = (int) Math.floor(Math.min(xa, xb)) - 1;
+        int x1 = (int) Math.ceil(Math.max(xa, xb)) + 1;
+        int y0 = (int) Math.floor(Math.min(ya, yb)) - 1;
+        int y1 = (int) Math.ceil(Math.max(ya, yb)) + 1;
+        BufferedImage image = new BufferedImage(2*(x1 - x0), 2*(y1 - y0), BufferedImage.TYPE_INT_ARGB);
+        return new Layer(image, 2*x0, 2*y0);
+    }
+
+    /**
+     * Clears the layer and sends all drawing to it until {@link #endLayer()}.
+     * Shapes land on the same pixels, with the same pen and antialiasing, as
+     * if they were drawn on the canvas.
+     *
+     * @param  layer the layer to draw into
+     * @throws IllegalStateException if another layer is being drawn into
+     */
+    public static void beginLayer(Layer layer) {
+        validateNotNull(layer, "layer");
+        if (canvas != null) throw new IllegalStateException("already drawing into a layer");
+        Graphics2D g = layer.image.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, layer.image.getWidth(), layer.image.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        g.translate(-layer.left, -layer.top);
+        g.transform(offscreen.getTransform());
+        g.setRenderingHints(offscreen.getRenderingHints());
+        g.setStroke(offscreen.getStroke());
+        g.setColor(offscreen.getColor());
+        canvas = offscreen;
+        offscreen = g;
+    }
+
+    /**
+     * Sends drawing back to the canvas after {@link #beginLayer(Layer)}. The pen
+     * color and radius set while drawing the layer stay set.
+     */
+    public static void endLayer() {
+        if (canvas == null) return;
+        offscreen.dispose();
+        offscreen = canvas;
+        canvas = null;
+        offscreen.setColor(penColor);
+        setPenRadius(penRadius);
+    }
+
+    /**
+     * Draws all of a layer over the canvas where it was created.
+     *
+     * @param  layer the layer to draw
+     */
+    public static void drawLayer(Layer layer) {
+        validateNotNull(layer, "layer");
+        drawLayerPixels(layer, 0, 0, layer.image.getWidth(), layer.image.getHeight());
+    }
+
+    /**
+     * Draws the part of a layer inside the given rectangle over the canvas, covering
+     * the same pixels as {@link #picture(double, double, Image, double, double)}
+     * would for that rectangle.
+     *
+     * @param  layer the layer to draw
+     * @param  x the <em>x</em>-coordinate of the center of the rectangle
+     * @param  y the <em>y</em>-coordinate of the center of the rectangle
+     * @param  halfWidth one half the width of the rectangle
+     * @param  halfHeight one half the height of the rectangle
+     */
+    public static void drawLayer(Layer layer, double x, double y, double halfWidth, double halfHeight) {
+        validateNotNull(layer, "layer");
+        double xs = scaleX(x);
+        double ys = scaleY(y);
+        double ws = factorX(2*halfWidth);
+        double hs = factorY(2*halfHeight);
+        int x0 = 2 * (int) Math.round(xs - ws/2.0) - layer.left;
+        int y0 = 2 * (int) Math.round(ys - hs/2.0) - layer.top;
+        int x1 = x0 + 2 * (int) Math.round(ws);
+        int y1 = y0 + 2 * (int) Math.round(hs);
+        drawLayerPixels(layer, Math.max(0, x0), Math.max(0, y0),
+                        Math.min(layer.image.getWidth(), x1), Math.min(layer.image.getHeight(), y1));
+    }
+
+    // copies layer pixels [x0, x1) x [y0, y1) to the same place on the canvas image
+    private static void drawLayerPixels(Layer layer, int x0, int y0, int x1, int y1) {
+        if (x0 >= x1 || y0 >= y1) return;
+        AffineTransform transform = offscreen.getTransform();
+        offscreen.setTransform(new AffineTransform());
+        int dx = layer.left, dy = layer.top;
+        offscreen.drawImage(layer.image, x0 + dx, y0 + dy, x1 + dx, y1 + dy, x0, y0, x1, y1, null);
+        offscreen.setTransform(transform);
+        draw();
+    }
+
+    /**
+     * Copies one rectangular region of the offscreen canvas to the onscreen canvas
+     * and repaints only that region, for when little has changed since the last
+     * call to {@link #show()}. The region is widened by a pixel on each side to
+     * take in antialiased edges.
+     *
+     * @param  x the <em>x</em>-coordinate of the center of the region
+     * @param  y the <em>y</em>-coordinate of the center of the region
+     * @param  halfWidth one half the width of the region
+     * @param  halfHeight one half the height of the region
+     * @throws IllegalArgumentException if either {@code halfWidth} or {@code halfHeight} is negative
+     * @throws IllegalArgumentException if any argument is either NaN or infinite
+     */
+    public static void showRegion(double x, double y, double halfWidth, double halfHeight) {
+        validate(x, "x");
+        validate(y, "y");
+        validate(halfWidth, "halfWidth");
+        validate(halfHeight, "halfHeight");
+        validateNonnegative(halfWidth, "half width");
+        validateNonnegative(halfHeight, "half height");
+
+        double xa = scaleX(x - halfWidth), xb = scaleX(x + halfWidth);
+        double ya = scaleY(y - halfHeight), yb = scaleY(y + halfHeight);
+        int x0 = Math.max(0, (int) Math.floor(Math.min(xa, xb)) - 1);
+        int x1 = Math.min(width, (int) Math.ceil(Math.max(xa, xb)) + 1);
+        int y0 = Math.max(0, (int) Math.floor(Math.min(ya, yb)) - 1);
+        int y1 = Math.min(height, (int) Math.ceil(Math.max(ya, yb)) + 1);
+        if (x0 >= x1 || y0 >= y1) return;
+
+        if (strategy != null) {
+            present(x0, y0, x1, y1);
+            return;
+        }
+        onscreen.drawImage(offscreenImage, 2*x0, 2*y0, 2*x1, 2*y1, 2*x0, 2*y0, 2*x1, 2*y1, null);
+        frame.getContentPane().repaint(x0, y0, x1 - x0, y1 - y0);
+    }
+
     public static JFrame getFrame(){
         return frame;
     }
     // draw onscreen if defer is false
     private static void draw() {
-        if (!defer) show();
+        if (!defer && canvas == null) show();
     }
 
     /**
@@ -1752,6 +2090,11 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
     *  Save drawing to a file.
     ***************************************************************************/
 
+    // what the window shows, the onscreen canvas is not kept up to date while page flipping
+    private static BufferedImage shownImage() {
+        return (strategy != null) ? offscreenImage : onscreenImage;
+    }
+
     /**
      * Saves the drawing to using the specified filename.
      * The supported image formats are JPEG and PNG;
@@ -1768,7 +2111,7 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
         // png files
         if ("png".equalsIgnoreCase(suffix)) {
             try {
-                ImageIO.write(onscreenImage, suffix, file);
+                ImageIO.write(shownImage(), suffix, file);
             }
             catch (IOException e) {
                 e.printStackTrace();
@@ -1780,7 +2123,7 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
             // Credit to arnabanimesh for simpler ARGB to RGB conversion
             BufferedImage rgbBuffer = new BufferedImage(2*width, 2*height, BufferedImage.TYPE_INT_RGB);
             Graphics2D rgb2d = rgbBuffer.createGraphics();
-            rgb2d.drawImage(onscreenImage, 0, 0, null);
+            rgb2d.drawImage(shownImage(), 0, 0, null);
             rgb2d.dispose();
             try {
                 ImageIO.write(rgbBuffer, suffix, file);
@@ -1810,6 +2153,90 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
     }
 
 
+   /***************************************************************************
+    *  Event queue.
+    ***************************************************************************/
+
+    /**
+     * A mouse press, drag or release, a typed key, or a call to {@link #wakeUp()}.
+     */
+    public static final class UserEvent {
+        public static final int MOUSE_PRESSED = 0;
+        public static final int MOUSE_RELEASED = 1;
+        public static final int KEY_TYPED = 2;
+        public static final int WAKE_UP = 3;
+        public static final int MOUSE_DRAGGED = 4;
+
+        /** one of the constants above */
+        public final int type;
+        /** user coordinates of the mouse when the event happened */
+        public final double x, y;
+        /** the key typed, for {@code KEY_TYPED} events */
+        public final char key;
+
+        private UserEvent(int type, double x, double y, char key) {
+            this.type = type;
+            this.x = x;
+            this.y = y;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Starts queueing mouse and keyboard events for {@link #nextEvent()}.
+     * From then on typed keys are no longer saved for {@link #nextKeyTyped()}.
+     */
+    public static void enableEvents() {
+        if (events == null) {
+            events = new LinkedBlockingQueue<UserEvent>();
+        }
+    }
+
+    /**
+     * Waits until there is an event and returns it.
+     *
+     * @return the oldest event that has not been returned yet
+     * @throws IllegalStateException if {@link #enableEvents()} has not been called
+     */
+    public static UserEvent nextEvent() {
+        return nextEvent(Long.MAX_VALUE);
+    }
+
+    /**
+     * Waits at most the given time for an event and returns it.
+     *
+     * @param  timeout the most milliseconds to wait, 0 to return right away
+     * @return the oldest event that has not been returned yet, or null if there was none in time
+     * @throws IllegalStateException if {@link #enableEvents()} has not been called
+     */
+    public static UserEvent nextEvent(long timeout) {
+        LinkedBlockingQueue<UserEvent> queue = events;
+        if (queue == null) throw new IllegalStateException("events are not enabled");
+        try {
+            return queue.poll(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Makes a waiting {@link #nextEvent()} return a {@code WAKE_UP} event.
+     * Can be called from any thread, does nothing unless events are enabled.
+     */
+    public static void wakeUp() {
+        queueEvent(UserEvent.WAKE_UP, 0, 0, '\0');
+    }
+
+    private static void queueEvent(int type, double x, double y, char key) {
+        LinkedBlockingQueue<UserEvent> queue = events;
+        if (queue != null) {
+            queue.offer(new UserEvent(type, x, y, key));
+        }
+    }
+
+
    /***************************************************************************
     *  Mouse interactions.
     ***************************************************************************/
@@ -1894,6 +2321,7 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
             mouseX = StdDraw.userX(e.getX());
             mouseY = StdDraw.userY(e.getY());
             isMousePressed = true;
+            queueEvent(UserEvent.MOUSE_PRESSED, mouseX, mouseY, '\0');
         }
     }
 
@@ -1904,6 +2332,7 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
     public void mouseReleased(MouseEvent e) {
         synchronized (mouseLock) {
             isMousePressed = false;
+            queueEvent(UserEvent.MOUSE_RELEASED, StdDraw.userX(e.getX()), StdDraw.userY(e.getY()), '\0');
         }
     }
 
@@ -1915,6 +2344,7 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
         synchronized (mouseLock) {
             mouseX = StdDraw.userX(e.getX());
             mouseY = StdDraw.userY(e.getY());
+            queueEvent(UserEvent.MOUSE_DRAGGED, mouseX, mouseY, '\0');
         }
     }
 
@@ -1992,6 +2422,10 @@ public final class StdDraw implements ActionListener, MouseListener, MouseMotion
      */
     @Override
     public void keyTyped(KeyEvent e) {
+        if (events != null) {
+            queueEvent(UserEvent.KEY_TYPED, mouseX(), mouseY(), e.getKeyChar());
+            return;
+        }
         synchronized (keyLock) {
             keysTyped.addFirst(e.getKeyChar());
         }
@@ -0,0 +1,143 @@
+package conwaygame;
+/*
+ * Reads a grid from standard input and streams its generations to standard output, so
+ * simulations can be chained with other programs in a pipeline.
+ *
+ *   java conwaygame.StreamRunner [mode] [every] [generations] < input > frames
+ *
+ * The input can be in any format GridReader detects. One frame is emitted for the input and
+ * then one every `every` generations (default 1), until `generations` have been computed
+ * (default: until the reader closes the stream). The modes are
+ *   delta  a GenerationJournal stream: keyframes every KEYFRAME_INTERVAL frames and XOR deltas
+ *          in between (default). Saved to a file it can be read with GenerationJournal.load().
+ *   full   the same stream with every frame a keyframe
+ *   text   every frame as a text grid, as written by GridWriter
+ *
+ * Output goes through a buffered channel, and frames are flushed as they are emitted. Writes
+ * block while the reader is behind, which pauses the simulation instead of queueing frames,
+ * so memory stays bounded however many generations are streamed.
+ */
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
+
+public class StreamRunner {
+
+    public static final String[] MODES = {"delta", "full", "text"};
+    public static final int KEYFRAME_INTERVAL = 64;
+
+    public static void main(String[] args) {
+        if (args.length > 3) {
+            usage("expected at most 3 arguments");
+        }
+        String mode = args.length > 0 ? args[0] : MODES[0];
+        if (!mode.equals("delta") && !mode.equals("full") && !mode.equals("text")) {
+            usage("unknown mode " + mode);
+        }
+        long every = args.length > 1 ? parse(args[1], "every") : 1;
+        long generations = args.length > 2 ? parse(args[2], "generations") : Long.MAX_VALUE;
+        if (every == 0) {
+            usage("every must be at least 1");
+        }
+
+        GameOfLife game = new GameOfLife();
+        try (FileChannel in = new FileInputStream(FileDescriptor.in).getChannel()) {
+            GridReader.read(new ChannelInput(in), game);
+        } catch (IOException e) {
+            System.err.println("StreamRunner: could not read standard input: " + e.getMessage());
+            System.exit(1);
+        } catch (NoSuchElementException e) {  // InputMismatchException too
+            System.err.println("StreamRunner: standard input is not a valid grid: " + e.getMessage());
+            System.exit(1);
+        }
+
+        FileChannel out = new FileOutputStream(FileDescriptor.out).getChannel();
+        try {
+            if (mode.equals("text")) {
+                streamText(game, out, every, generations);
+            } else {
+                streamJournal(game, out, every, generations, mode.equals("full") ? 1 : KEYFRAME_INTERVAL);
+            }
+        } catch (IOException e) {
+            // The reader went away (broken pipe), which is how an unbounded stream ends
+            if (isBrokenPipe(e)) {
+                System.exit(0);
+            }
+            System.err.println("StreamRunner: could not write standard output: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // True if e says the other end of the output pipe was closed (EPIPE), as opposed to a
+    // real write failure such as a full disk. The JDK reports EPIPE only through the message.
+    private static boolean isBrokenPipe(IOException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String message = t.getMessage();
+            if (message != null && message.toLowerCase().contains("broken pipe")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Emits frames as a journal stream
+    private static void streamJournal(GameOfLife game, FileChannel out, long every, long generations, int keyframeInterval) throws IOException {
+        boolean[][] grid = game.getGrid();
+        try (GenerationJournal journal = new GenerationJournal(out, grid.length, grid[0].length, keyframeInterval)) {
+            long start = game.getGeneration();
+            while (true) {
+                journal.append(game.getGrid(), game.getGeneration());
+                journal.flush();
+                long done = game.getGeneration() - start;
+                if (done >= generations) {
+                    break;
+                }
+                game.nextGeneration((int)Math.min(every, generations - done));
+            }
+        }
+    }
+
+    // Emits frames as text grids, reusing one packed copy of the grid for every frame
+    private static void streamText(GameOfLife game, FileChannel out, long every, long generations) throws IOException {
+        boolean[][] grid = game.getGrid();
+        PackedGrid frame = new PackedGrid(grid.length, grid[0].length);
+        long start = game.getGeneration();
+        try {
+            while (true) {
+                frame.packFrom(game.getGrid());
+                GridWriter.writeText(out, frame);
+                long done = game.getGeneration() - start;
+                if (done >= generations) {
+                    break;
+                }
+                game.nextGeneration((int)Math.min(every, generations - done));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static long parse(String arg, String name) {
+        try {
+            long value = Long.parseLong(arg);
+            if (value >= 0 && value <= Integer.MAX_VALUE) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        usage(name + " must be a whole number from 0 to " + Integer.MAX_VALUE + ", got " + arg);
+        return 0;
+    }
+
+    private static void usage(String problem) {
+        System.err.println("StreamRunner: " + problem);
+        System.err.println("usage: java conwaygame.StreamRunner [mode] [every] [generations] < input > frames");
+        System.err.println("modes: " + String.join(", ", MODES));
+        System.exit(2);
+    }
+}